@@ -0,0 +1,127 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Строки подряд с одинаковым title собираются в один {@link UserBookRequest};
+ * строка без полей книги задаёт пользователя без книг.
+ */
+class CsvUserBookRequestReader implements UserBookRequestReader {
+    static final String HEADER_DESCRIPTION = "fullName,title,age,bookTitle,bookAuthor,bookPageCount";
+    private static final List<String> HEADER = List.of(HEADER_DESCRIPTION.split(","));
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreSurroundingSpaces(true)
+            .build();
+
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+    private CSVRecord pending;
+
+    CsvUserBookRequestReader(InputStream inputStream) {
+        try {
+            this.parser = CSVParser.parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8), FORMAT);
+        } catch (IOException | UncheckedIOException | IllegalArgumentException exc) {
+            throw new BulkImportFormatException("Cannot read CSV header: " + exc.getMessage(), exc);
+        }
+        if (!parser.getHeaderNames().containsAll(HEADER))
+            throw new BulkImportFormatException("CSV header must contain columns " + HEADER_DESCRIPTION);
+        this.records = parser.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peekRecord() != null;
+    }
+
+    @Override
+    public UserBookRequest next() {
+        CSVRecord first = peekRecord();
+        if (first == null)
+            throw new NoSuchElementException();
+        pending = null;
+
+        List<BookRequest> bookRequests = new ArrayList<>();
+        addBookRequest(bookRequests, first);
+        CSVRecord record;
+        while ((record = peekRecord()) != null && Objects.equals(record.get("title"), first.get("title"))) {
+            pending = null;
+            addBookRequest(bookRequests, record);
+        }
+
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(first.get("fullName"));
+        userRequest.setTitle(first.get("title"));
+        userRequest.setAge((int) parseNumber(first, "age"));
+
+        UserBookRequest userBookRequest = new UserBookRequest();
+        userBookRequest.setUserRequest(userRequest);
+        userBookRequest.setBookRequests(bookRequests);
+        return userBookRequest;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Строка CSV, прочитанная заранее, чтобы понять, где заканчиваются книги текущего пользователя.
+     */
+    private CSVRecord peekRecord() {
+        if (pending == null && hasMoreRecords())
+            pending = records.next();
+        return pending;
+    }
+
+    private boolean hasMoreRecords() {
+        try {
+            return records.hasNext();
+        } catch (UncheckedIOException | IllegalStateException exc) {
+            throw new BulkImportFormatException("Malformed CSV line: " + exc.getMessage(), exc);
+        }
+    }
+
+    private void addBookRequest(List<BookRequest> bookRequests, CSVRecord record) {
+        if (!record.isConsistent())
+            throw new BulkImportFormatException("Wrong column count in CSV row " + record.getRecordNumber());
+        if (StringUtils.isAllBlank(record.get("bookTitle"), record.get("bookAuthor"), record.get("bookPageCount")))
+            return;
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle(record.get("bookTitle"));
+        bookRequest.setAuthor(record.get("bookAuthor"));
+        bookRequest.setPageCount(parseNumber(record, "bookPageCount"));
+        bookRequests.add(bookRequest);
+    }
+
+    private static long parseNumber(CSVRecord record, String column) {
+        String value = record.get(column);
+        if (StringUtils.isBlank(value))
+            return 0;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException exc) {
+            throw new BulkImportFormatException("Column " + column + " is not a number in CSV row "
+                    + record.getRecordNumber());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+class NdjsonUserBookRequestReader implements UserBookRequestReader {
+    private final MappingIterator<UserBookRequest> iterator;
+
+    NdjsonUserBookRequestReader(InputStream inputStream, ObjectMapper objectMapper) {
+        try {
+            this.iterator = objectMapper.readerFor(UserBookRequest.class).readValues(inputStream);
+        } catch (IOException exc) {
+            throw new BulkImportFormatException("Cannot read NDJSON input: " + exc.getMessage(), exc);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return iterator.hasNextValue();
+        } catch (IOException exc) {
+            throw new BulkImportFormatException("Malformed NDJSON record: " + exc.getMessage(), exc);
+        }
+    }
+
+    @Override
+    public UserBookRequest next() {
+        try {
+            return iterator.nextValue();
+        } catch (IOException exc) {
+            throw new BulkImportFormatException("Malformed NDJSON record: " + exc.getMessage(), exc);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+}
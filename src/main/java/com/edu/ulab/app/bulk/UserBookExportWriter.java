@@ -0,0 +1,73 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Пишет выгрузку в NDJSON: одна строка - один пользователь в формате {@link com.edu.ulab.app.web.response.UserResponse}.
+ * Строки должны идти упорядоченными по пользователю. Книги пишутся по мере чтения,
+ * поэтому в памяти не собирается ни выгрузка, ни пользователь со всеми книгами.
+ */
+@Component
+public class UserBookExportWriter {
+    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
+
+    public UserBookExportWriter(ObjectMapper objectMapper,
+                                UserMapper userMapper) {
+        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * @return количество выгруженных пользователей
+     */
+    public long write(Stream<UserBookView> rows, OutputStream outputStream) throws IOException {
+        long userCount = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Long currentUserId = null;
+            Iterator<UserBookView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UserBookView row = iterator.next();
+                if (!row.getUserId().equals(currentUserId)) {
+                    if (currentUserId != null)
+                        writeUserEnd(generator);
+                    writeUserStart(generator, row);
+                    currentUserId = row.getUserId();
+                    userCount++;
+                }
+                if (row.getBookId() != null)
+                    generator.writeObject(userMapper.userBookViewToBookDto(row));
+            }
+            if (currentUserId != null)
+                writeUserEnd(generator);
+        }
+        return userCount;
+    }
+
+    private static void writeUserStart(JsonGenerator generator, UserBookView row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("userId", row.getUserId());
+        generator.writeStringField("fullName", row.getFullName());
+        generator.writeStringField("title", row.getTitle());
+        generator.writeNumberField("age", row.getAge());
+        generator.writeArrayFieldStart("booksList");
+    }
+
+    private static void writeUserEnd(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
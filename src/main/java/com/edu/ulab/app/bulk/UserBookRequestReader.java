@@ -0,0 +1,30 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Потоковое чтение записей массового импорта: в памяти держится только текущая запись.
+ * Ошибки формата входных данных выбрасываются как {@link com.edu.ulab.app.exception.BulkImportFormatException}.
+ */
+public interface UserBookRequestReader extends Iterator<UserBookRequest>, Closeable {
+
+    /**
+     * Одна строка - один {@link UserBookRequest} в JSON.
+     */
+    static UserBookRequestReader ndjson(InputStream inputStream, ObjectMapper objectMapper) {
+        return new NdjsonUserBookRequestReader(inputStream, objectMapper);
+    }
+
+    /**
+     * Одна строка - одна книга пользователя, строки одного пользователя идут подряд.
+     * Колонки: {@value CsvUserBookRequestReader#HEADER_DESCRIPTION}.
+     */
+    static UserBookRequestReader csv(InputStream inputStream) {
+        return new CsvUserBookRequestReader(inputStream);
+    }
+}
@@ -0,0 +1,30 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+    public static final String USER_WITH_BOOKS_CACHE = "userWithBooks";
+
+    @Value("${spring.cache.caffeine.spec}")
+    private String caffeineSpec;
+
+    /**
+     * Кэши ограничены по размеру и времени жизни (W-TinyLFU Caffeine).
+     * Вытеснение из кэша выполняется только после коммита транзакции.
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USER_WITH_BOOKS_CACHE);
+        cacheManager.setCacheSpecification(caffeineSpec);
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,25 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.grpc.BoundedCallExecutorSupplier;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+
+import static com.edu.ulab.app.config.JdbcExecutorConfig.JDBC_EXECUTOR;
+
+@Configuration
+public class GrpcServerConfig {
+
+    /**
+     * Вызовы gRPC выполняются в jdbcExecutor, как и запросы контроллера: потоков не больше, чем соединений
+     * Hikari, а при заполненной очереди вызов сразу получает UNAVAILABLE. Без этого grpc-java обрабатывал бы
+     * вызовы в неограниченном кэширующем пуле.
+     */
+    @Bean
+    public GrpcServerConfigurer jdbcExecutorGrpcServerConfigurer(@Qualifier(JDBC_EXECUTOR) Executor jdbcExecutor) {
+        return serverBuilder -> serverBuilder.callExecutor(new BoundedCallExecutorSupplier(jdbcExecutor));
+    }
+}
@@ -0,0 +1,75 @@
+package com.edu.ulab.app.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Configuration
+@EnableConfigurationProperties(HibernateCacheProperties.class)
+@ConditionalOnProperty(prefix = "hibernate-cache", name = "enabled", matchIfMissing = true)
+public class HibernateCacheConfig {
+    public static final String PERSON_REGION = "ulab-person";
+    public static final String BOOK_REGION = "ulab-book";
+    public static final String PERSON_BOOKS_REGION = "ulab-person-books";
+    public static final String BOOKS_BY_PERSON_QUERY_REGION = "ulab-books-by-person";
+
+    private static final List<String> REGIONS = List.of(PERSON_REGION, BOOK_REGION, PERSON_BOOKS_REGION,
+            BOOKS_BY_PERSON_QUERY_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    /**
+     * Регионы создаются заранее по настройкам hibernate-cache, поэтому Hibernate запускается
+     * с missing_cache_strategy=fail: опечатка в имени региона не превратится в неограниченный кэш.
+     * Регион отметок обновления таблиц не ограничивается и не истекает: иначе кэш запросов
+     * может вернуть результат, устаревший после изменения таблицы.
+     * URI менеджера свой у каждого контекста: провайдер JCache общий на загрузчик классов, и второй
+     * контекст в той же JVM (например, в тестах) иначе получил бы уже созданные регионы первого.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(HibernateCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("ulab-hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        REGIONS.forEach(name -> cacheManager.createCache(name, configuration(properties.region(name))));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                configuration(HibernateCacheProperties.Region.of(null, null)));
+        return cacheManager;
+    }
+
+    /**
+     * Попадания и промахи по регионам публикуются через статистику Hibernate (hibernate-micrometer):
+     * hibernate.second.level.cache.requests и hibernate.query.cache.requests с тегом result.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(HibernateCacheProperties.Region region) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (region.getMaximumSize() != null)
+            configuration.setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+        if (region.getExpireAfterWrite() != null)
+            configuration.setExpireAfterWrite(OptionalLong.of(region.getExpireAfterWrite().toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,45 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Размер и время жизни регионов второго уровня кэша Hibernate.
+ * Регион, не указанный в regions, получает настройки default-region; поле, не заданное у региона, тоже.
+ */
+@Data
+@ConfigurationProperties("hibernate-cache")
+public class HibernateCacheProperties {
+    private boolean enabled = true;
+    private Region defaultRegion = Region.of(10_000L, Duration.ofMinutes(10));
+    private Map<String, Region> regions = new HashMap<>();
+
+    public Region region(String name) {
+        Region region = regions.get(name);
+        if (region == null)
+            return defaultRegion;
+        return Region.of(
+                region.getMaximumSize() != null ? region.getMaximumSize() : defaultRegion.getMaximumSize(),
+                region.getExpireAfterWrite() != null ? region.getExpireAfterWrite() : defaultRegion.getExpireAfterWrite());
+    }
+
+    /**
+     * Пустые значения default-region снимают ограничение.
+     */
+    @Data
+    public static class Region {
+        private Long maximumSize;
+        private Duration expireAfterWrite;
+
+        public static Region of(Long maximumSize, Duration expireAfterWrite) {
+            Region region = new Region();
+            region.setMaximumSize(maximumSize);
+            region.setExpireAfterWrite(expireAfterWrite);
+            return region;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.idempotency.IdempotencyStore;
+import com.edu.ulab.app.idempotency.InMemoryIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * idempotency.store=memory хранит ключи в памяти экземпляра; при нескольких экземплярах за балансировщиком
+ * нужен idempotency.store=jdbc ({@link com.edu.ulab.app.repository.IdempotencyKeyRepository}),
+ * иначе повтор, попавший на другой экземпляр, выполнится заново.
+ */
+@Configuration
+@EnableScheduling
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "idempotency", name = "store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(@Value("${idempotency.memory.maximum-size:100000}") long maximumSize) {
+        return new InMemoryIdempotencyStore(maximumSize);
+    }
+}
@@ -0,0 +1,38 @@
+package com.edu.ulab.app.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Ответы отдаются в JSON, CBOR или Smile по заголовку Accept.
+ * Бинарные конвертеры строятся тем же Jackson2ObjectMapperBuilder, что и JSON, поэтому получают те же модули
+ * и настройки spring.jackson.* и заменяют конвертеры Spring MVC по умолчанию.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Вместо рефлексии геттеры и сеттеры вызываются через сгенерированные лямбды (LambdaMetafactory).
+     * Регистрируется во всех ObjectMapper, собранных Jackson2ObjectMapperBuilder.
+     */
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
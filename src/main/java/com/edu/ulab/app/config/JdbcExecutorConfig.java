@@ -0,0 +1,89 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.sql.SqlStatementStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class JdbcExecutorConfig {
+    public static final String JDBC_EXECUTOR = "jdbcExecutor";
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int connectionPoolSize;
+
+    @Value("${jdbc-executor.queue-capacity}")
+    private int queueCapacity;
+
+    /**
+     * Пул, на котором контроллер выполняет обращения к БД. Потоков столько же, сколько соединений Hikari,
+     * поэтому задачи не ждут соединение, а стоят в ограниченной очереди; при заполненной очереди
+     * задача отклоняется сразу ({@link org.springframework.core.task.TaskRejectedException}), а потоки Tomcat
+     * и health-check не блокируются медленной БД.
+     * Размер очереди и активные потоки публикуются как executor.* с тегом name=jdbcExecutor.
+     */
+    @Bean(JDBC_EXECUTOR)
+    public ThreadPoolTaskExecutor jdbcExecutor(MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("jdbc.executor.rejected")
+                .description("Tasks rejected because the jdbc executor queue is full")
+                .register(meterRegistry);
+        Timer queueWait = Timer.builder("jdbc.executor.queue.wait")
+                .description("Time a task waited in the jdbc executor queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("jdbc-");
+        executor.setCorePoolSize(connectionPoolSize);
+        executor.setMaxPoolSize(connectionPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(queueWaitAndContextDecorator(queueWait));
+        executor.setRejectedExecutionHandler((task, threadPoolExecutor) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("Jdbc executor queue is full");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Переносит MDC (requestId) и счётчики SQL-запросов из потока запроса в поток пула
+     * и замеряет время ожидания в очереди.
+     */
+    static TaskDecorator queueWaitAndContextDecorator(Timer queueWait) {
+        return task -> {
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            SqlStatementStats stats = SqlStatementStats.current();
+            long submittedAt = System.nanoTime();
+            return () -> {
+                queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                Map<String, String> previous = MDC.getCopyOfContextMap();
+                SqlStatementStats previousStats = SqlStatementStats.bind(stats);
+                if (context == null)
+                    MDC.clear();
+                else
+                    MDC.setContextMap(context);
+                try {
+                    task.run();
+                } finally {
+                    SqlStatementStats.bind(previousStats);
+                    if (previous == null)
+                        MDC.clear();
+                    else
+                        MDC.setContextMap(previous);
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.edu.ulab.app.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+    public static final String FACADE_TIMER = "ulab.facade";
+    public static final String SERVICE_TIMER = "ulab.service";
+    public static final String BOOKS_PER_REQUEST = "ulab.request.books";
+
+    /**
+     * Включает {@link io.micrometer.core.annotation.Timed} на фасаде и сервисах: таймер получает теги class и method,
+     * гистограммы и перцентили для метрик ulab.* задаются в management.metrics.distribution.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.retry.OptimisticRetryMetricsListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(OptimisticRetryProperties.class)
+public class OptimisticRetryConfig {
+
+    /**
+     * Повторяется только конфликт версий, в том числе обёрнутый в другое исключение;
+     * каждая попытка должна открывать свою транзакцию.
+     */
+    @Bean
+    public RetryTemplate optimisticRetryTemplate(OptimisticRetryProperties properties, MeterRegistry meterRegistry) {
+        Map<Class<? extends Throwable>, Boolean> retryableExceptions = Map.of(OptimisticLockingFailureException.class, true);
+
+        ExponentialRandomBackOffPolicy backOffPolicy = new ExponentialRandomBackOffPolicy();
+        backOffPolicy.setInitialInterval(properties.getInitialInterval().toMillis());
+        backOffPolicy.setMultiplier(properties.getMultiplier());
+        backOffPolicy.setMaxInterval(properties.getMaxInterval().toMillis());
+
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(properties.getMaxAttempts(), retryableExceptions, true));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+        retryTemplate.registerListener(new OptimisticRetryMetricsListener(
+                new BinaryExceptionClassifier(retryableExceptions, false, true), meterRegistry));
+        return retryTemplate;
+    }
+}
@@ -0,0 +1,19 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Повторы изменения пользователя при конфликте версий: паузы растут от initial-interval
+ * в multiplier раз до max-interval и выбираются случайно внутри каждого шага.
+ */
+@Data
+@ConfigurationProperties("optimistic-retry")
+public class OptimisticRetryProperties {
+    private int maxAttempts = 5;
+    private Duration initialInterval = Duration.ofMillis(20);
+    private double multiplier = 2.0;
+    private Duration maxInterval = Duration.ofMillis(500);
+}
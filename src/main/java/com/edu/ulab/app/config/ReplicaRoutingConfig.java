@@ -0,0 +1,132 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.routing.ReadYourWrites;
+import com.edu.ulab.app.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class ReplicaRoutingConfig {
+    private static final String HIKARI_PROPERTIES = "spring.datasource.hikari";
+
+    /**
+     * Окно нужно и без маршрутизации: чтение, начатое до коммита изменения, не должно положить
+     * старого пользователя в кэш userWithBooks после его вытеснения.
+     */
+    @Bean
+    public ReadYourWrites readYourWrites(ReplicaRoutingProperties properties) {
+        return new ReadYourWrites(properties.getReadYourWritesWindow());
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "replica-routing", name = "enabled")
+    static class RoutingDataSourceConfig implements DisposableBean {
+        private ReplicaRoutingDataSource routingDataSource;
+
+        /**
+         * Основной пул и пулы реплик не регистрируются бинами, чтобы DataSource в контексте был один.
+         */
+        @Bean
+        public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                     ReplicaRoutingProperties properties,
+                                     Environment environment) {
+            HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+            configure(primary, environment, ReplicaRoutingDataSource.PRIMARY);
+
+            Map<String, DataSource> replicas = new LinkedHashMap<>();
+            List<ReplicaRoutingProperties.Replica> replicaProperties = properties.getReplicas();
+            for (int i = 0; i < replicaProperties.size(); i++) {
+                ReplicaRoutingProperties.Replica replicaProperty = replicaProperties.get(i);
+                HikariDataSource replica = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .driverClassName(dataSourceProperties.determineDriverClassName())
+                        .url(replicaProperty.getUrl())
+                        .username(Objects.requireNonNullElse(replicaProperty.getUsername(),
+                                dataSourceProperties.determineUsername()))
+                        .password(Objects.requireNonNullElse(replicaProperty.getPassword(),
+                                dataSourceProperties.determinePassword()))
+                        .build();
+                String name = "replica-" + i;
+                configure(replica, environment, name);
+                replica.setReadOnly(true);
+                // недоступная при старте реплика не мешает запуску, её исключит проверка
+                replica.setInitializationFailTimeout(-1);
+                replicas.put(name, replica);
+            }
+
+            routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                    properties.getHealthCheckInterval(), properties.getHealthCheckTimeout());
+            routingDataSource.afterPropertiesSet();
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+
+        /**
+         * Метрики маршрутизации и пулов реплик; пул основной БД Boot находит сам через unwrap.
+         * Пулы Hikari стартуют при первом соединении, до этого трекер метрик ещё можно заменить.
+         */
+        @Bean
+        public MeterBinder replicaRoutingMetrics(DataSource dataSource) throws SQLException {
+            ReplicaRoutingDataSource routingDataSource = dataSource.unwrap(ReplicaRoutingDataSource.class);
+            return meterRegistry -> {
+                routingDataSource.bindTo(meterRegistry);
+                routingDataSource.getResolvedDataSources().forEach((name, target) -> {
+                    if (!ReplicaRoutingDataSource.PRIMARY.equals(name) && target instanceof HikariDataSource hikari)
+                        hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                });
+            };
+        }
+
+        /**
+         * Реплики, не прошедшие проверку, не делают приложение DOWN: чтения переключаются на основную БД.
+         */
+        @Bean
+        public HealthIndicator replicasHealthIndicator(DataSource dataSource) throws SQLException {
+            ReplicaRoutingDataSource routingDataSource = dataSource.unwrap(ReplicaRoutingDataSource.class);
+            return () -> {
+                Map<String, Boolean> replicaHealth = routingDataSource.replicaHealth();
+                Health.Builder health = Health.up()
+                        .withDetail("reads", replicaHealth.containsValue(true) ? "replicas" : "primary");
+                replicaHealth.forEach((name, healthy) -> health.withDetail(name, healthy ? "UP" : "DOWN"));
+                return health.build();
+            };
+        }
+
+        /**
+         * Пулы закрываются после бинов, использующих DataSource, так как эта конфигурация — его фабрика.
+         */
+        @Override
+        public void destroy() {
+            if (routingDataSource != null)
+                routingDataSource.close();
+        }
+
+        private static void configure(HikariDataSource dataSource, Environment environment, String poolName) {
+            Binder.get(environment).bind(HIKARI_PROPERTIES, Bindable.ofInstance(dataSource));
+            dataSource.setPoolName(poolName);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение с реплик: транзакции только на чтение уходят на реплики, остальные — на основную БД.
+ * Пулы реплик получают те же настройки spring.datasource.hikari, что и основной пул.
+ */
+@Data
+@ConfigurationProperties("replica-routing")
+public class ReplicaRoutingProperties {
+    private boolean enabled = false;
+    /**
+     * Сколько после изменения пользователя его чтения идут на основную БД и не кладутся в кэш; 0 отключает.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * Если username/password не заданы, используются учётные данные основной БД.
+     */
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
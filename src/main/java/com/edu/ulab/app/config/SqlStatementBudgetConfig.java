@@ -0,0 +1,45 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.sql.SqlStatementCountingListener;
+import com.edu.ulab.app.web.filter.SqlStatementBudgetFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SqlStatementBudgetProperties.class)
+@ConditionalOnProperty(prefix = "sql-budget", name = "enabled", matchIfMissing = true)
+public class SqlStatementBudgetConfig {
+
+    /**
+     * Оборачивает DataSource в datasource-proxy, который считает запросы текущего HTTP-запроса.
+     * Hikari остаётся доступен через unwrap, поэтому метрики пула не меняются.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource)
+                    return bean;
+                return ProxyDataSourceBuilder.create((DataSource) bean)
+                        .name(beanName)
+                        .listener(new SqlStatementCountingListener())
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public SqlStatementBudgetFilter sqlStatementBudgetFilter(SqlStatementBudgetProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        return new SqlStatementBudgetFilter(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Бюджет SQL-запросов на один HTTP-запрос.
+ * Ключ endpoints — метод и шаблон пути обработчика, например "GET /api/v1/user/get/{userId}";
+ * отрицательный бюджет отключает проверку endpoint'а.
+ */
+@Data
+@ConfigurationProperties("sql-budget")
+public class SqlStatementBudgetProperties {
+    private boolean enabled = true;
+    private int defaultMaxStatements = 20;
+    private int repeatedStatementThreshold = 10;
+    private int loggedStatements = 5;
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int maxStatements(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultMaxStatements);
+    }
+}
@@ -0,0 +1,28 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.writebehind.UserUpdateCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindConfig {
+
+    /**
+     * При выключенной отложенной записи изменения сразу уходят в фасад, поток сброса не создаётся.
+     * При остановке приложения накопленные изменения записываются до закрытия пула соединений.
+     */
+    @Bean
+    public UserUpdateCoalescer userUpdateCoalescer(UserDataFacade userDataFacade,
+                                                   UserMapper userMapper,
+                                                   BookMapper bookMapper,
+                                                   WriteBehindProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new UserUpdateCoalescer(userDataFacade, userMapper, bookMapper, properties, meterRegistry);
+    }
+}
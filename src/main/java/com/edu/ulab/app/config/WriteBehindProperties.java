@@ -0,0 +1,21 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Отложенная запись изменений пользователя: запросы по одному userId копятся window с первого из них
+ * и пишутся одним изменением; за один сброс в транзакцию попадает не больше max-batch-size пользователей.
+ * Запрос, не дождавшийся коммита за ack-timeout, получает 503.
+ */
+@Data
+@ConfigurationProperties("write-behind")
+public class WriteBehindProperties {
+    private boolean enabled = false;
+    private Duration window = Duration.ofMillis(20);
+    private Duration ackTimeout = Duration.ofSeconds(5);
+    private int maxBatchSize = 50;
+    private int maxPendingUsers = 10_000;
+}
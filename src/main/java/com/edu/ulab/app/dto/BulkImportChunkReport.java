@@ -0,0 +1,23 @@
+package com.edu.ulab.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Результат загрузки одной порции массового импорта.
+ */
+@Data
+@Builder
+public class BulkImportChunkReport {
+    private int chunk;
+    private long firstRecord;
+    private int receivedUsers;
+    private int importedUsers;
+    private int importedBooks;
+    private List<BulkImportRejection> rejected;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+}
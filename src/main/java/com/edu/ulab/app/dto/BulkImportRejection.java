@@ -0,0 +1,12 @@
+package com.edu.ulab.app.dto;
+
+import lombok.Value;
+
+/**
+ * Отклонённая запись импорта: порядковый номер во входном потоке (с нуля) и причина.
+ */
+@Value
+public class BulkImportRejection {
+    long record;
+    String reason;
+}
@@ -5,13 +5,19 @@ import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
+import static com.edu.ulab.app.config.HibernateCacheConfig.BOOK_REGION;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = BOOK_REGION)
 @Table(name = "book", schema = "ulab_edu")
 public class Book {
     @Id
@@ -28,6 +34,10 @@ public class Book {
     @Column(nullable = false)
     private long pageCount;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id", nullable = false)
     private Person person;
@@ -2,15 +2,22 @@ package com.edu.ulab.app.entity;
 
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.Set;
 
+import static com.edu.ulab.app.config.HibernateCacheConfig.PERSON_BOOKS_REGION;
+import static com.edu.ulab.app.config.HibernateCacheConfig.PERSON_REGION;
+
 
 @Getter
 @Setter
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = PERSON_REGION)
 @Table(name = "person", schema = "ulab_edu")
 public class Person {
     @Id
@@ -27,6 +34,10 @@ public class Person {
     @Column(nullable = false)
     private int age;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
 //    @Column(nullable = false)
 //    private int count;
 
@@ -35,5 +46,6 @@ public class Person {
             CascadeType.PERSIST,
             CascadeType.DETACH,
             CascadeType.REFRESH})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = PERSON_BOOKS_REGION)
     private Set<Book> bookSet;
 }
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.exception;
+
+public class BulkImportFormatException extends RuntimeException {
+    public BulkImportFormatException(String message) {
+        super(message);
+    }
+
+    public BulkImportFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
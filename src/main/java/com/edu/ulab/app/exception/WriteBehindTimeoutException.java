@@ -0,0 +1,7 @@
+package com.edu.ulab.app.exception;
+
+public class WriteBehindTimeoutException extends RuntimeException {
+    public WriteBehindTimeoutException(String message) {
+        super(message);
+    }
+}
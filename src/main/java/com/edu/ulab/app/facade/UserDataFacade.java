@@ -1,60 +1,134 @@
 package com.edu.ulab.app.facade;
 
+import com.edu.ulab.app.bulk.UserBookExportWriter;
+import com.edu.ulab.app.bulk.UserBookRequestReader;
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BulkImportChunkReport;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.BatchSizeExceededException;
+import com.edu.ulab.app.exception.ConcurrentUpdateException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.pagination.BookCursor;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.edu.ulab.app.routing.ReadYourWrites;
 
 import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BulkImportServiceImpl;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBatchResponse;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
 import com.edu.ulab.app.web.response.UserResponse;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.edu.ulab.app.config.CacheConfig.USER_WITH_BOOKS_CACHE;
+import static com.edu.ulab.app.config.MetricsConfig.BOOKS_PER_REQUEST;
+import static com.edu.ulab.app.config.MetricsConfig.FACADE_TIMER;
+import static com.edu.ulab.app.logging.LogMarkers.SAMPLED;
+import static com.edu.ulab.app.web.constant.WebConstant.MAX_BATCH_USER_IDS;
+import static com.edu.ulab.app.web.constant.WebConstant.MAX_BOOK_PAGE_SIZE;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Component
+@Timed(FACADE_TIMER)
 public class UserDataFacade {
     private final UserServiceImpl userService;
     private final BookServiceImpl bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final BulkImportServiceImpl bulkImportService;
+    private final UserBookExportWriter userBookExportWriter;
+    private final ReadYourWrites readYourWrites;
+    private final RetryTemplate optimisticRetryTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache userWithBooksCache;
+    private final DistributionSummary createdBooks;
+    private final DistributionSummary syncedBooks;
+    private final DistributionSummary gotBooks;
+    private final DistributionSummary batchGotBooks;
 
     public UserDataFacade(UserServiceImpl userService,
                           BookServiceImpl bookService,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
+                          BookMapper bookMapper,
+                          BulkImportServiceImpl bulkImportService,
+                          UserBookExportWriter userBookExportWriter,
+                          ReadYourWrites readYourWrites,
+                          RetryTemplate optimisticRetryTemplate,
+                          TransactionTemplate transactionTemplate,
+                          CacheManager cacheManager,
+                          MeterRegistry meterRegistry) {
         this.userService = userService;
         this.bookService = bookService;
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.bulkImportService = bulkImportService;
+        this.userBookExportWriter = userBookExportWriter;
+        this.readYourWrites = readYourWrites;
+        this.optimisticRetryTemplate = optimisticRetryTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userWithBooksCache = cacheManager.getCache(USER_WITH_BOOKS_CACHE);
+        this.createdBooks = booksPerRequest(meterRegistry, "create");
+        this.syncedBooks = booksPerRequest(meterRegistry, "update");
+        this.gotBooks = booksPerRequest(meterRegistry, "get");
+        this.batchGotBooks = booksPerRequest(meterRegistry, "get-batch");
     }
 
     @Transactional
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user book create request: {}", userBookRequest);
+        log.info("Got user book create request {}", kv("bookCount", userBookRequest.getBookRequests().size()));
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request {}", kv("title", userDto.getTitle()));
 
         UserDto createdUser = userService.createUser(userDto);
-        log.info("Created user: {}", createdUser);
+        readYourWrites.recordWrite(createdUser.getId());
+        log.info("Created user {}", kv("userId", createdUser.getId()));
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> bookDtoList = userBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(createdUser.getId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
-                .peek(createdBook -> log.info("Created book: {}", createdBook))
+                .peek(mappedBookDto -> log.info(SAMPLED, "Mapped book {} {}",
+                        kv("title", mappedBookDto.getTitle()), kv("author", mappedBookDto.getAuthor())))
+                .toList();
+
+        List<Long> bookIdList = bookService.createBooks(createdUser.getId(), bookDtoList)
+                .stream()
+                .peek(createdBook -> log.info(SAMPLED, "Created book {}", kv("bookId", createdBook.getId())))
                 .map(BookDto::getId)
                 .toList();
-        log.info("Collected book ids: {}", bookIdList);
+        log.info("Created books {} {}", kv("userId", createdUser.getId()), kv("bookCount", bookIdList.size()));
+        createdBooks.record(bookIdList.size());
 
         return UserBookResponse.builder()
                 .userId(createdUser.getId())
@@ -62,54 +136,225 @@ public class UserDataFacade {
                 .build();
     }
 
-    @Transactional
+    /**
+     * Изменение выполняется без блокировок с проверкой версии пользователя и книг; при конфликте
+     * транзакция откатывается и повторяется целиком после случайной паузы, пока не кончатся попытки.
+     */
+    @CacheEvict(cacheNames = USER_WITH_BOOKS_CACHE, key = "#userId")
     public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest, Long userId) {
-        log.info("Got user book update request: {}", userBookRequest);
+        log.info("Got user book update request {} {}", kv("userId", userId),
+                kv("bookCount", userBookRequest.getBookRequests().size()));
+        try {
+            return optimisticRetryTemplate.execute(context ->
+                    transactionTemplate.execute(status -> syncUserWithBooks(userBookRequest, userId)));
+        } catch (OptimisticLockingFailureException exc) {
+            log.warn("User update attempts exhausted {}", kv("userId", userId));
+            throw new ConcurrentUpdateException("User was modified concurrently, retry later");
+        }
+    }
+
+    /**
+     * Изменения нескольких пользователей одной транзакцией для отложенной записи. При конфликте версий
+     * повторяется вся пачка; кэш пользователей сбрасывается после коммита.
+     */
+    public Map<Long, UserBookResponse> updateUsersWithBooks(Map<Long, UserBookRequest> userBookRequests) {
+        log.info("Got user book batch update request {}", kv("userCount", userBookRequests.size()));
+        try {
+            Map<Long, UserBookResponse> responses = optimisticRetryTemplate.execute(context ->
+                    transactionTemplate.execute(status -> {
+                        Map<Long, UserBookResponse> synced = new LinkedHashMap<>();
+                        userBookRequests.forEach((userId, userBookRequest) ->
+                                synced.put(userId, syncUserWithBooks(userBookRequest, userId)));
+                        return synced;
+                    }));
+            userBookRequests.keySet().forEach(userWithBooksCache::evict);
+            return responses;
+        } catch (OptimisticLockingFailureException exc) {
+            log.warn("User batch update attempts exhausted {}", kv("userCount", userBookRequests.size()));
+            throw new ConcurrentUpdateException("Users were modified concurrently, retry later");
+        }
+    }
+
+    private UserBookResponse syncUserWithBooks(UserBookRequest userBookRequest, Long userId) {
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
         userDto.setId(userId);
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request {}", kv("title", userDto.getTitle()));
 
         UserDto updatedUser = userService.updateUser(userDto);
-        log.info("Updated user: {}", updatedUser);
+        readYourWrites.recordWrite(updatedUser.getId());
+        log.info("Updated user {}", kv("userId", updatedUser.getId()));
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> bookDtoList = userBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(updatedUser.getId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::updateBook)
-                .peek(updatedBook -> log.info("Created book: {}", updatedBook))
+                .peek(mappedBookDto -> log.info(SAMPLED, "Mapped book {} {}",
+                        kv("title", mappedBookDto.getTitle()), kv("author", mappedBookDto.getAuthor())))
+                .toList();
+
+        List<Long> bookIdList = bookService.syncBooks(updatedUser.getId(), bookDtoList)
+                .stream()
+                .peek(syncedBook -> log.info(SAMPLED, "Synced book {}", kv("bookId", syncedBook.getId())))
                 .map(BookDto::getId)
                 .toList();
-        log.info("Updated book ids: {}", bookIdList);
+        log.info("Synced books {} {}", kv("userId", updatedUser.getId()), kv("bookCount", bookIdList.size()));
+        syncedBooks.record(bookIdList.size());
         return UserBookResponse.builder()
                 .userId(updatedUser.getId())
                 .booksIdList(bookIdList)
                 .build();
     }
 
+    /**
+     * Версия увеличивается при каждом изменении пользователя или его книг через фасад
+     * и проверяется до чтения книг, чтобы неизменившийся ответ не собирать заново.
+     */
+    @Transactional(readOnly = true)
+    public long getUserVersion(Long userId) {
+        return readYourWrites.read(userId, () -> userService.getUserVersion(userId));
+    }
+
+    /**
+     * Пользователь кэшируется с блокировкой по ключу, поэтому на промах идёт один запрос к БД.
+     * Значение, загруженное в окне read-your-writes после изменения пользователя, сразу вытесняется:
+     * чтение могло начаться до коммита изменения и положить старые данные уже после его вытеснения.
+     */
     @Transactional(readOnly = true)
     public UserResponse getUserWithBooks(Long userId) {
-        UserDto gotUser = userService.getUserById(userId);
-        log.info("Got user: {}", gotUser);
-
-        List<BookDto> booksList = bookService.getAllBooksByUserId(gotUser.getId());
-        log.info("All user books: {}", booksList);
-
-        return UserResponse.builder()
-                .userId(gotUser.getId())
-                .fullName(gotUser.getFullName())
-                .title(gotUser.getTitle())
-                .age(gotUser.getAge())
-                .booksList(booksList)
+        AtomicBoolean loaded = new AtomicBoolean();
+        UserResponse gotUser;
+        try {
+            gotUser = userWithBooksCache.get(userId, () -> {
+                loaded.set(true);
+                return loadUserWithBooks(userId);
+            });
+        } catch (Cache.ValueRetrievalException exc) {
+            if (exc.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw exc;
+        }
+        if (loaded.get() && readYourWrites.isRecentlyWritten(userId))
+            userWithBooksCache.evictIfPresent(userId);
+        return gotUser;
+    }
+
+    private UserResponse loadUserWithBooks(Long userId) {
+        UserResponse gotUser = userMapper.userBookViewsToUserResponse(
+                readYourWrites.read(userId, () -> userService.getUserWithBooksById(userId)));
+        log.info("Got user with books {} {}", kv("userId", userId), kv("bookCount", gotUser.getBooksList().size()));
+        gotBooks.record(gotUser.getBooksList().size());
+        return gotUser;
+    }
+
+    /**
+     * Пользователи берутся из кэша userWithBooks, промахи читаются одним запросом по id in (...)
+     * и кладутся в кэш после коммита, кроме изменённых в окне read-your-writes.
+     * Ненайденные id возвращаются отдельным списком.
+     */
+    @Transactional(readOnly = true)
+    public UserBatchResponse getUsersWithBooks(List<Long> userIds) {
+        Set<Long> requestedIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (requestedIds.size() > MAX_BATCH_USER_IDS)
+            throw new BatchSizeExceededException("No more than " + MAX_BATCH_USER_IDS + " user ids per request");
+
+        Map<Long, UserResponse> cachedUsers = new HashMap<>();
+        List<Long> missedIds = new ArrayList<>();
+        for (Long userId : requestedIds) {
+            UserResponse cachedUser = userWithBooksCache.get(userId, UserResponse.class);
+            if (cachedUser != null)
+                cachedUsers.put(userId, cachedUser);
+            else
+                missedIds.add(userId);
+        }
+
+        Map<Long, UserResponse> loadedUsers = missedIds.isEmpty()
+                ? Map.of()
+                : userMapper.userBookViewsToUserResponses(
+                readYourWrites.readAll(missedIds, () -> userService.getUsersWithBooksByIds(missedIds)));
+        loadedUsers.forEach((userId, user) -> {
+            if (!readYourWrites.isRecentlyWritten(userId))
+                userWithBooksCache.put(userId, user);
+        });
+        if (!missedIds.isEmpty())
+            batchGotBooks.record(loadedUsers.values().stream().mapToInt(user -> user.getBooksList().size()).sum());
+
+        Map<Long, UserResponse> users = new LinkedHashMap<>();
+        List<Long> notFoundUserIds = new ArrayList<>();
+        for (Long userId : requestedIds) {
+            UserResponse user = cachedUsers.getOrDefault(userId, loadedUsers.get(userId));
+            if (user != null)
+                users.put(userId, user);
+            else
+                notFoundUserIds.add(userId);
+        }
+        log.info("Got users with books {} {} {}", kv("userCount", users.size()), kv("cacheHits", cachedUsers.size()),
+                kv("notFound", notFoundUserIds.size()));
+        return UserBatchResponse.builder()
+                .users(users)
+                .notFoundUserIds(notFoundUserIds)
+                .build();
+    }
+
+    /**
+     * Запрашивается на одну книгу больше размера страницы, чтобы без COUNT узнать, есть ли следующая.
+     */
+    @Transactional(readOnly = true)
+    public UserBookPageResponse getUserBooksPage(Long userId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_BOOK_PAGE_SIZE);
+        long afterBookId = BookCursor.decode(cursor, userId);
+        List<BookDto> books = readYourWrites.read(userId,
+                () -> bookService.getBooksPageByUserId(userId, afterBookId, pageSize + 1));
+
+        boolean hasNextPage = books.size() > pageSize;
+        List<BookDto> page = hasNextPage ? books.subList(0, pageSize) : books;
+        log.info("Got user books page {} {} {}", kv("userId", userId), kv("bookCount", page.size()),
+                kv("hasNextPage", hasNextPage));
+        return UserBookPageResponse.builder()
+                .userId(userId)
+                .booksList(page)
+                .nextCursor(hasNextPage ? BookCursor.encode(userId, page.get(page.size() - 1).getId()) : null)
                 .build();
     }
 
     @Transactional
+    @CacheEvict(cacheNames = USER_WITH_BOOKS_CACHE, key = "#userId")
     public void deleteUserWithBooks(Long userId) {
+        readYourWrites.recordWrite(userId);
         bookService.deleteAllBooksByUserId(userId);
         userService.deleteUserById(userId);
-        log.info("Delete user with books with userId: {}", userId);
+        log.info("Deleted user with books {}", kv("userId", userId));
+    }
+
+    /**
+     * Транзакции открываются на каждую порцию импорта, а не на весь поток.
+     */
+    public void importUsersWithBooks(UserBookRequestReader reader, Consumer<BulkImportChunkReport> reportConsumer) {
+        log.info("Got bulk import request");
+        bulkImportService.importUsersWithBooks(reader, reportConsumer);
+    }
+
+    /**
+     * Выгрузка читается одним курсором в транзакции только на чтение и пишется в поток по мере чтения.
+     */
+    @Transactional(readOnly = true)
+    public long exportUsersWithBooks(OutputStream outputStream) throws IOException {
+        try (Stream<UserBookView> rows = userService.streamAllUsersWithBooks()) {
+            long userCount = userBookExportWriter.write(rows, outputStream);
+            log.info("Exported users with books {}", kv("userCount", userCount));
+            return userCount;
+        }
+    }
+
+    /**
+     * Распределение числа книг в запросе; для get учитываются только промахи кэша.
+     */
+    private static DistributionSummary booksPerRequest(MeterRegistry meterRegistry, String operation) {
+        return DistributionSummary.builder(BOOKS_PER_REQUEST)
+                .description("Books per user book request")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,39 @@
+package com.edu.ulab.app.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Переводит обработку вызовов gRPC в ограниченный пул. Если пул отклонил задачу, вызов закрывается
+ * со статусом UNAVAILABLE, как отклонённый HTTP-запрос получает 503; остальные события этого вызова
+ * уже не выполняются.
+ */
+@Slf4j
+public class BoundedCallExecutorSupplier implements ServerCallExecutorSupplier {
+    private final Executor executor;
+
+    public BoundedCallExecutorSupplier(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata headers) {
+        return task -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException exc) {
+                log.warn("gRPC call rejected {} {}", kv("method", call.getMethodDescriptor().getFullMethodName()),
+                        kv("error", exc.getMessage()));
+                call.close(Status.UNAVAILABLE.withDescription("Service is overloaded, retry later"), new Metadata());
+            }
+        };
+    }
+}
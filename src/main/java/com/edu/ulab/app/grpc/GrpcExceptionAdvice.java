@@ -0,0 +1,77 @@
+package com.edu.ulab.app.grpc;
+
+import com.edu.ulab.app.exception.ConcurrentUpdateException;
+import com.edu.ulab.app.exception.EmptyFieldException;
+import com.edu.ulab.app.exception.IdempotencyKeyReuseException;
+import com.edu.ulab.app.exception.InvalidCursorException;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.RequestInProgressException;
+import com.edu.ulab.app.exception.WriteBehindTimeoutException;
+import io.grpc.Status;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.advice.GrpcAdvice;
+import net.devh.boot.grpc.server.advice.GrpcExceptionHandler;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Аналог {@link com.edu.ulab.app.web.handler.ControllerExceptionHandler} для gRPC:
+ * исключения фасада переводятся в статусы, необработанные становятся UNKNOWN.
+ */
+@Slf4j
+@GrpcAdvice
+public class GrpcExceptionAdvice {
+
+    @GrpcExceptionHandler(NotFoundException.class)
+    public Status handleNotFoundException(@NonNull final NotFoundException exc) {
+        log.error(exc.getMessage());
+        return Status.NOT_FOUND.withDescription(exc.getMessage());
+    }
+
+    @GrpcExceptionHandler({EmptyFieldException.class, InvalidCursorException.class})
+    public Status handleInvalidArgumentException(@NonNull final RuntimeException exc) {
+        log.error(exc.getMessage());
+        return Status.INVALID_ARGUMENT.withDescription(exc.getMessage());
+    }
+
+    @GrpcExceptionHandler(NotUniqueException.class)
+    public Status handleNotUniqueException(@NonNull final NotUniqueException exc) {
+        log.error(exc.getMessage());
+        return Status.ALREADY_EXISTS.withDescription(exc.getMessage());
+    }
+
+    @GrpcExceptionHandler(IdempotencyKeyReuseException.class)
+    public Status handleIdempotencyKeyReuseException(@NonNull final IdempotencyKeyReuseException exc) {
+        log.error(exc.getMessage());
+        return Status.FAILED_PRECONDITION.withDescription(exc.getMessage());
+    }
+
+    /**
+     * Запрос с тем же request_id ещё выполняется или все попытки изменения закончились конфликтом версий:
+     * клиенту стоит повторить вызов целиком.
+     */
+    @GrpcExceptionHandler({RequestInProgressException.class, ConcurrentUpdateException.class})
+    public Status handleAbortedException(@NonNull final RuntimeException exc) {
+        log.warn(exc.getMessage());
+        return Status.ABORTED.withDescription(exc.getMessage());
+    }
+
+    /**
+     * Очередь отложенной записи заполнена: вызов не выполнялся, его можно повторить позже.
+     */
+    @GrpcExceptionHandler(TaskRejectedException.class)
+    public Status handleTaskRejectedException(@NonNull final TaskRejectedException exc) {
+        log.warn(exc.getMessage());
+        return Status.UNAVAILABLE.withDescription("Service is overloaded, retry later");
+    }
+
+    /**
+     * Отложенная запись не подтвердила коммит вовремя: изменение можно повторить позже.
+     */
+    @GrpcExceptionHandler(WriteBehindTimeoutException.class)
+    public Status handleWriteBehindTimeoutException(@NonNull final WriteBehindTimeoutException exc) {
+        log.warn(exc.getMessage());
+        return Status.UNAVAILABLE.withDescription(exc.getMessage());
+    }
+}
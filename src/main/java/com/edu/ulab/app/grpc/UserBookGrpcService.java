@@ -0,0 +1,184 @@
+package com.edu.ulab.app.grpc;
+
+import com.edu.ulab.app.exception.EmptyFieldException;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.grpc.v1.Book;
+import com.edu.ulab.app.grpc.v1.CreateUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.DeleteUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.GetUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.ListUserBooksRequest;
+import com.edu.ulab.app.grpc.v1.UpdateUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.UserBookReply;
+import com.edu.ulab.app.grpc.v1.UserBookServiceGrpc;
+import com.edu.ulab.app.grpc.v1.UserWithBooks;
+import com.edu.ulab.app.mapper.UserBookGrpcMapper;
+import com.edu.ulab.app.service.IdempotencyService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import com.edu.ulab.app.writebehind.UserUpdateCoalescer;
+import com.google.protobuf.Empty;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.slf4j.MDC;
+
+import static com.edu.ulab.app.web.constant.WebConstant.DEFAULT_BOOK_PAGE_SIZE;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * gRPC-вариант {@link com.edu.ulab.app.web.UserController}: те же операции фасада, транзакции и идемпотентность.
+ * Ошибки переводятся в статусы gRPC в {@link GrpcExceptionAdvice}.
+ */
+@Slf4j
+@GrpcService
+public class UserBookGrpcService extends UserBookServiceGrpc.UserBookServiceImplBase {
+    private static final String REQUEST_ID = "requestId";
+    private static final int DEFAULT_PAGE_SIZE = Integer.parseInt(DEFAULT_BOOK_PAGE_SIZE);
+
+    private final UserDataFacade userDataFacade;
+    private final IdempotencyService idempotencyService;
+    private final UserBookGrpcMapper userBookGrpcMapper;
+    private final UserUpdateCoalescer userUpdateCoalescer;
+
+    public UserBookGrpcService(UserDataFacade userDataFacade,
+                               IdempotencyService idempotencyService,
+                               UserBookGrpcMapper userBookGrpcMapper,
+                               UserUpdateCoalescer userUpdateCoalescer) {
+        this.userDataFacade = userDataFacade;
+        this.idempotencyService = idempotencyService;
+        this.userBookGrpcMapper = userBookGrpcMapper;
+        this.userUpdateCoalescer = userUpdateCoalescer;
+    }
+
+    @Override
+    public void createUserWithBooks(CreateUserWithBooksRequest request, StreamObserver<UserBookReply> responseObserver) {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+            checkUserPresent(request.hasUser());
+            UserBookRequest userBookRequest = userBookGrpcMapper.createRequestToUserBookRequest(request);
+            UserBookResponse response = idempotencyService.execute(request.getRequestId(), "create", userBookRequest,
+                    UserBookResponse.class, () -> userDataFacade.createUserWithBooks(userBookRequest));
+            log.info("gRPC response with created user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksIdList().size()));
+            responseObserver.onNext(userBookGrpcMapper.userBookResponseToReply(response));
+            responseObserver.onCompleted();
+        }
+    }
+
+    @Override
+    public void updateUserWithBooks(UpdateUserWithBooksRequest request, StreamObserver<UserBookReply> responseObserver) {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+            long userId = request.getUserId();
+            checkUserPresent(request.hasUser());
+            UserBookRequest userBookRequest = userBookGrpcMapper.updateRequestToUserBookRequest(request);
+            UserBookResponse response = idempotencyService.execute(request.getRequestId(), "update/" + userId,
+                    userBookRequest, UserBookResponse.class,
+                    () -> userUpdateCoalescer.update(userId, userBookRequest));
+            log.info("gRPC response with updated user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksIdList().size()));
+            responseObserver.onNext(userBookGrpcMapper.userBookResponseToReply(response));
+            responseObserver.onCompleted();
+        }
+    }
+
+    @Override
+    public void getUserWithBooks(GetUserWithBooksRequest request, StreamObserver<UserWithBooks> responseObserver) {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+            UserResponse response = userDataFacade.getUserWithBooks(request.getUserId());
+            log.info("gRPC response with user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksList().size()));
+            responseObserver.onNext(userBookGrpcMapper.userResponseToUserWithBooks(response));
+            responseObserver.onCompleted();
+        }
+    }
+
+    @Override
+    public void deleteUserWithBooks(DeleteUserWithBooksRequest request, StreamObserver<Empty> responseObserver) {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+            long userId = request.getUserId();
+            log.info("gRPC delete user and his books {}", kv("userId", userId));
+            idempotencyService.execute(request.getRequestId(), "delete/" + userId, null, Void.class, () -> {
+                userDataFacade.deleteUserWithBooks(userId);
+                return null;
+            });
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+
+    /**
+     * Книги читаются страницами по курсору, каждая в своей короткой транзакции. Следующая страница читается
+     * из onReady, только пока поток готов принимать сообщения, поэтому медленный клиент держит в памяти
+     * сервера не больше одной страницы; после отмены вызова страницы больше не читаются.
+     */
+    @Override
+    public void listUserBooks(ListUserBooksRequest request, StreamObserver<Book> responseObserver) {
+        ServerCallStreamObserver<Book> serverObserver = (ServerCallStreamObserver<Book>) responseObserver;
+        BookPageStreamer streamer = new BookPageStreamer(request, serverObserver);
+        serverObserver.setOnCancelHandler(streamer::cancel);
+        serverObserver.setOnReadyHandler(streamer);
+    }
+
+    /**
+     * Без сообщения user запрос дошёл бы до фасада с userRequest = null; отклоняется как запрос с пустыми полями.
+     */
+    private void checkUserPresent(boolean hasUser) {
+        if (!hasUser)
+            throw new EmptyFieldException("User fields cannot be equals null or empty");
+    }
+
+    /**
+     * Состояние потока книг между вызовами onReady; обработчики вызова выполняются по очереди,
+     * поэтому поля не требуют синхронизации. Ошибки onReady не проходят через {@link GrpcExceptionAdvice}
+     * и закрывают вызов статусом UNKNOWN.
+     */
+    private class BookPageStreamer implements Runnable {
+        private final ListUserBooksRequest request;
+        private final ServerCallStreamObserver<Book> serverObserver;
+        private final int pageSize;
+        private String cursor;
+        private long bookCount;
+        private boolean finished;
+
+        private BookPageStreamer(ListUserBooksRequest request, ServerCallStreamObserver<Book> serverObserver) {
+            this.request = request;
+            this.serverObserver = serverObserver;
+            this.pageSize = request.getPageSize() > 0 ? request.getPageSize() : DEFAULT_PAGE_SIZE;
+        }
+
+        @Override
+        public void run() {
+            try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+                while (!finished && serverObserver.isReady())
+                    sendNextPage();
+            } catch (RuntimeException exc) {
+                finished = true;
+                log.error("gRPC user books stream failed {} {}", kv("userId", request.getUserId()),
+                        kv("error", exc.getMessage()));
+                serverObserver.onError(exc);
+            }
+        }
+
+        private void sendNextPage() {
+            UserBookPageResponse page = userDataFacade.getUserBooksPage(request.getUserId(), cursor, pageSize);
+            page.getBooksList().forEach(bookDto -> serverObserver.onNext(userBookGrpcMapper.bookDtoToBook(bookDto)));
+            bookCount += page.getBooksList().size();
+            cursor = page.getNextCursor();
+            if (cursor == null) {
+                finished = true;
+                log.info("gRPC streamed user books {} {}", kv("userId", request.getUserId()), kv("bookCount", bookCount));
+                serverObserver.onCompleted();
+            }
+        }
+
+        private void cancel() {
+            finished = true;
+            try (MDC.MDCCloseable ignored = MDC.putCloseable(REQUEST_ID, request.getRequestId())) {
+                log.info("gRPC user books stream cancelled {} {}", kv("userId", request.getUserId()),
+                        kv("bookCount", bookCount));
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.edu.ulab.app.idempotency;
+
+import lombok.Value;
+
+/**
+ * Запись о запросе с ключом идемпотентности (rqid): отпечаток запроса и, после завершения, ответ в JSON.
+ */
+@Value
+public class IdempotencyRecord {
+    String fingerprint;
+    boolean completed;
+    String response;
+}
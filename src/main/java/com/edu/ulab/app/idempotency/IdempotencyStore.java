@@ -0,0 +1,36 @@
+package com.edu.ulab.app.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Хранилище ключей идемпотентности. Ключ сначала захватывается на время выполнения (lease),
+ * затем в него записывается ответ на ttl; при ошибке выполнения ключ освобождается.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Незавершённая или завершённая запись, срок которой не истёк.
+     */
+    Optional<IdempotencyRecord> find(String key);
+
+    /**
+     * Захватывает ключ, если записи нет или её срок истёк. owner отличает это выполнение от выполнения,
+     * которое может захватить ключ после истечения lease.
+     *
+     * @return false, если ключ уже захвачен или по нему есть ответ
+     */
+    boolean tryStart(String key, String fingerprint, String owner, Duration lease);
+
+    /**
+     * Записывает ответ, если ключ всё ещё захвачен этим выполнением.
+     *
+     * @return false, если lease истёк и ключ захвачен другим выполнением
+     */
+    boolean complete(String key, String owner, String response, Duration ttl);
+
+    /**
+     * Освобождает ключ, если он всё ещё захвачен этим выполнением и ответа по нему нет.
+     */
+    void release(String key, String owner);
+}
@@ -0,0 +1,70 @@
+package com.edu.ulab.app.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Хранилище ключей в памяти одного экземпляра приложения; срок жизни задаётся на каждую запись.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(long maximumSize) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry())
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> find(String key) {
+        return Optional.ofNullable(entries.getIfPresent(key)).map(Entry::record);
+    }
+
+    @Override
+    public boolean tryStart(String key, String fingerprint, String owner, Duration lease) {
+        Entry started = new Entry(new IdempotencyRecord(fingerprint, false, null), owner, lease);
+        return entries.asMap().putIfAbsent(key, started) == null;
+    }
+
+    @Override
+    public boolean complete(String key, String owner, String response, Duration ttl) {
+        Entry completed = entries.asMap().computeIfPresent(key, (ignored, entry) -> entry.ownedBy(owner)
+                ? new Entry(new IdempotencyRecord(entry.record().getFingerprint(), true, response), owner, ttl)
+                : entry);
+        return completed != null && completed.record().isCompleted() && owner.equals(completed.owner());
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        entries.asMap().computeIfPresent(key, (ignored, entry) -> entry.ownedBy(owner) ? null : entry);
+    }
+
+    private record Entry(IdempotencyRecord record, String owner, Duration ttl) {
+
+        private boolean ownedBy(String owner) {
+            return !record.isCompleted() && this.owner.equals(owner);
+        }
+    }
+
+    private static class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
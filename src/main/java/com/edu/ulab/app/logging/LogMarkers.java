@@ -0,0 +1,14 @@
+package com.edu.ulab.app.logging;
+
+import lombok.experimental.UtilityClass;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+@UtilityClass
+public class LogMarkers {
+    /**
+     * Сообщения, которые пишутся на каждый элемент запроса (например, на каждую книгу)
+     * и прореживаются {@link SamplingTurboFilter}.
+     */
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+}
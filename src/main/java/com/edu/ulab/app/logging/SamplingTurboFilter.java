@@ -0,0 +1,48 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускает только каждое rate-е сообщение уровня level, помеченное {@link LogMarkers#SAMPLED}.
+ * Счётчик свой у каждого места вызова (шаблона сообщения), поэтому частое сообщение не вытесняет редкое:
+ * первое сообщение каждого шаблона пишется всегда.
+ * Решение принимается до создания события, поэтому отброшенные сообщения не форматируются.
+ * Для разных уровней в logback-spring.xml объявляется несколько фильтров.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private Level level = Level.INFO;
+    private long rate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || !marker.contains(LogMarkers.SAMPLED) || !this.level.equals(level))
+            return FilterReply.NEUTRAL;
+        return counter(format).getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * Шаблоны — константы в коде, поэтому число счётчиков ограничено числом мест вызова.
+     */
+    private AtomicLong counter(String format) {
+        String callSite = format == null ? "" : format;
+        AtomicLong counter = counters.get(callSite);
+        return counter != null ? counter : counters.computeIfAbsent(callSite, key -> new AtomicLong());
+    }
+
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.INFO);
+    }
+
+    public void setRate(long rate) {
+        this.rate = Math.max(1, rate);
+    }
+}
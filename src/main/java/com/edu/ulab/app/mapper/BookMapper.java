@@ -6,6 +6,7 @@ import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.web.request.BookRequest;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.Named;
 
 @Mapper(componentModel = "spring")
@@ -17,6 +18,16 @@ public interface BookMapper {
 
     Book bookDtoToBook(BookDto bookDto);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "person", ignore = true)
+    void updateBookFromBookDto(BookDto bookDto, @MappingTarget Book book);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "person", ignore = true)
+    Book bookRequestToBook(BookRequest bookRequest);
+
     @Mapping(source = "person", target = "userId", qualifiedByName = "personToUserId")
     BookDto bookToBookDto(Book book);
 
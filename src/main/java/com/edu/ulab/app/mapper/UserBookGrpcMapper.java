@@ -0,0 +1,64 @@
+package com.edu.ulab.app.mapper;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.grpc.v1.Book;
+import com.edu.ulab.app.grpc.v1.BookInput;
+import com.edu.ulab.app.grpc.v1.CreateUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.UpdateUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.User;
+import com.edu.ulab.app.grpc.v1.UserBookReply;
+import com.edu.ulab.app.grpc.v1.UserWithBooks;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Сообщения gRPC переводятся в запросы и из ответов REST, дальше работают те же фасад и мапперы.
+ * Ответы собираются вручную: билдеры protobuf не подходят для генерации MapStruct.
+ */
+@Mapper(componentModel = "spring")
+public interface UserBookGrpcMapper {
+    @Mapping(source = "user", target = "userRequest")
+    @Mapping(source = "booksList", target = "bookRequests")
+    UserBookRequest createRequestToUserBookRequest(CreateUserWithBooksRequest request);
+
+    @Mapping(source = "user", target = "userRequest")
+    @Mapping(source = "booksList", target = "bookRequests")
+    UserBookRequest updateRequestToUserBookRequest(UpdateUserWithBooksRequest request);
+
+    UserRequest userToUserRequest(User user);
+
+    BookRequest bookInputToBookRequest(BookInput bookInput);
+
+    default UserBookReply userBookResponseToReply(UserBookResponse userBookResponse) {
+        return UserBookReply.newBuilder()
+                .setUserId(userBookResponse.getUserId())
+                .addAllBookIds(userBookResponse.getBooksIdList())
+                .build();
+    }
+
+    default UserWithBooks userResponseToUserWithBooks(UserResponse userResponse) {
+        UserWithBooks.Builder userWithBooks = UserWithBooks.newBuilder()
+                .setUserId(userResponse.getUserId())
+                .setFullName(userResponse.getFullName())
+                .setTitle(userResponse.getTitle())
+                .setAge(userResponse.getAge())
+                .setVersion(userResponse.getVersion());
+        userResponse.getBooksList().forEach(bookDto -> userWithBooks.addBooks(bookDtoToBook(bookDto)));
+        return userWithBooks.build();
+    }
+
+    default Book bookDtoToBook(BookDto bookDto) {
+        return Book.newBuilder()
+                .setId(bookDto.getId())
+                .setUserId(bookDto.getUserId())
+                .setTitle(bookDto.getTitle())
+                .setAuthor(bookDto.getAuthor())
+                .setPageCount(bookDto.getPageCount())
+                .build();
+    }
+}
@@ -1,9 +1,20 @@
 package com.edu.ulab.app.mapper;
 
+import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserResponse;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
@@ -13,5 +24,51 @@ public interface UserMapper {
 
     Person userDtoToPerson(UserDto userDto);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "bookSet", ignore = true)
+    void updatePersonFromUserDto(UserDto userDto, @MappingTarget Person person);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "bookSet", ignore = true)
+    Person userRequestToPerson(UserRequest userRequest);
+
     UserDto personToUserDto(Person person);
+
+    @Mapping(source = "bookId", target = "id")
+    @Mapping(source = "bookTitle", target = "title")
+    @Mapping(source = "bookAuthor", target = "author")
+    @Mapping(source = "bookPageCount", target = "pageCount")
+    BookDto userBookViewToBookDto(UserBookView userBookView);
+
+    default UserResponse userBookViewsToUserResponse(List<UserBookView> userBookViews) {
+        UserBookView user = userBookViews.get(0);
+        List<BookDto> booksList = userBookViews.stream()
+                .filter(userBookView -> userBookView.getBookId() != null)
+                .map(this::userBookViewToBookDto)
+                .toList();
+
+        return UserResponse.builder()
+                .userId(user.getUserId())
+                .fullName(user.getFullName())
+                .title(user.getTitle())
+                .age(user.getAge())
+                .version(user.getVersion())
+                .booksList(booksList)
+                .build();
+    }
+
+    /**
+     * Строки пачки пользователей группируются по userId с сохранением порядка строк.
+     */
+    default Map<Long, UserResponse> userBookViewsToUserResponses(List<UserBookView> userBookViews) {
+        return userBookViews.stream()
+                .collect(Collectors.groupingBy(UserBookView::getUserId, LinkedHashMap::new, Collectors.toList()))
+                .values()
+                .stream()
+                .map(this::userBookViewsToUserResponse)
+                .collect(Collectors.toMap(UserResponse::getUserId, Function.identity(),
+                        (first, second) -> first, LinkedHashMap::new));
+    }
 }
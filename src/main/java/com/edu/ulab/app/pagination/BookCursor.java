@@ -0,0 +1,52 @@
+package com.edu.ulab.app.pagination;
+
+import com.edu.ulab.app.exception.InvalidCursorException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор постраничной выборки книг: версия формата, id пользователя и id последней выданной книги
+ * в base64url. Курсор другого пользователя или повреждённый курсор отклоняется.
+ */
+@UtilityClass
+public class BookCursor {
+    /**
+     * Книги выбираются с id больше этого значения: идентификаторы из последовательности всегда положительны.
+     */
+    public static final long FIRST_PAGE_AFTER_ID = 0L;
+
+    private static final byte VERSION = 1;
+    private static final int LENGTH = 1 + Long.BYTES * 2;
+
+    public static String encode(long userId, long lastBookId) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .put(VERSION)
+                .putLong(userId)
+                .putLong(lastBookId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @return id последней выданной книги или {@link #FIRST_PAGE_AFTER_ID}, если курсора нет
+     */
+    public static long decode(String cursor, long userId) {
+        if (cursor == null || cursor.isEmpty())
+            return FIRST_PAGE_AFTER_ID;
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException exc) {
+            throw new InvalidCursorException("Cursor is malformed");
+        }
+        if (bytes.length != LENGTH || bytes[0] != VERSION)
+            throw new InvalidCursorException("Cursor is malformed");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, Long.BYTES * 2);
+        if (buffer.getLong() != userId)
+            throw new InvalidCursorException("Cursor belongs to another user");
+        return buffer.getLong();
+    }
+}
@@ -1,24 +1,49 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+
+import static com.edu.ulab.app.config.HibernateCacheConfig.BOOKS_BY_PERSON_QUERY_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select b from Book b where b.id = :id")
-    Optional<Book> findByIdForUpdate(long id);
-
+    /**
+     * Результат кэшируется в кэше запросов и сбрасывается при любом изменении таблицы book через Hibernate.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = BOOKS_BY_PERSON_QUERY_REGION)})
     List<Book> findAllByPersonId(Long userId);
 
-    void deleteAllByPersonId(Long userId);
+    /**
+     * Страница книг пользователя после книги afterId (keyset): читается по индексу (person_id, id)
+     * без OFFSET, поэтому стоимость не зависит от номера страницы.
+     */
+    @Query("select b from Book b where b.person.id = :userId and b.id > :afterId order by b.id")
+    List<Book> findPageByPersonId(Long userId, Long afterId, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Book b where b.person.id = :userId")
+    int deleteAllByPersonId(Long userId);
+
+    /**
+     * Одно выражение на весь список вместо цепочки "id = ? or ..." из deleteAllInBatch.
+     * Контекст не очищается: в транзакции остаются изменённые книги и принудительное увеличение версии пользователя.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Book b where b.person.id = :userId and b.id in :ids")
+    int deleteAllByPersonIdAndIdIn(Long userId, Collection<Long> ids);
 }
@@ -0,0 +1,107 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Массовая загрузка пользователей и книг через COPY ... FROM STDIN в обход Hibernate.
+ * Работает на соединении текущей транзакции.
+ */
+@Repository
+public class BulkLoadRepository {
+    /**
+     * Совпадает с allocationSize генератора "sequence" у {@link Person} и {@link Book}:
+     * при use-new-id-generator-mappings=false Hibernate выдаёт id из диапазона [nextval * 100, nextval * 100 + 99].
+     */
+    static final int ID_ALLOCATION_SIZE = 100;
+    private static final String COPY_PERSON =
+            "COPY ulab_edu.person (id, full_name, title, age) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_BOOK =
+            "COPY ulab_edu.book (id, person_id, title, author, page_count) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkLoadRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Set<String> findExistingTitles(Collection<String> titles) {
+        if (titles.isEmpty())
+            return Set.of();
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select title from ulab_edu.person where title = any (?)", String.class,
+                (Object) titles.toArray(String[]::new)));
+    }
+
+    /**
+     * Резервирует идентификаторы блоками той же последовательности, что и Hibernate,
+     * поэтому они не пересекаются с id, выданными обычному сохранению.
+     */
+    public long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        if (count == 0)
+            return ids;
+        int blockCount = (count + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> blocks = jdbcTemplate.queryForList(
+                "select nextval('sequence') from generate_series(1, ?)", Long.class, blockCount);
+        int index = 0;
+        for (long block : blocks) {
+            for (int lo = 0; lo < ID_ALLOCATION_SIZE && index < count; lo++)
+                ids[index++] = block * ID_ALLOCATION_SIZE + lo;
+        }
+        return ids;
+    }
+
+    public void copyPersons(List<Person> persons) {
+        copy(COPY_PERSON, printer -> {
+            for (Person person : persons)
+                printer.printRecord(person.getId(), person.getFullName(), person.getTitle(), person.getAge());
+        });
+    }
+
+    public void copyBooks(List<Book> books) {
+        copy(COPY_BOOK, printer -> {
+            for (Book book : books)
+                printer.printRecord(book.getId(), book.getPerson().getId(), book.getTitle(), book.getAuthor(),
+                        book.getPageCount());
+        });
+    }
+
+    private void copy(String sql, CopyRows rows) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            try (CSVPrinter printer = new CSVPrinter(
+                    new OutputStreamWriter(new PGCopyOutputStream(pgConnection, sql), StandardCharsets.UTF_8),
+                    CSVFormat.POSTGRESQL_CSV)) {
+                rows.print(printer);
+            } catch (IOException exc) {
+                // ошибки сервера (например, нарушение ограничения) приходят из COPY как причина IOException
+                if (exc.getCause() instanceof SQLException sqlException)
+                    throw sqlException;
+                throw new SQLException("COPY failed: " + exc.getMessage(), exc);
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface CopyRows {
+        void print(CSVPrinter printer) throws IOException;
+    }
+}
@@ -0,0 +1,87 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.idempotency.IdempotencyRecord;
+import com.edu.ulab.app.idempotency.IdempotencyStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Ключи идемпотентности в таблице ulab_edu.idempotency_key, общие для всех экземпляров приложения.
+ * Запросы выполняются вне транзакции обработчика, каждый в autocommit.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "idempotency", name = "store", havingValue = "jdbc")
+public class IdempotencyKeyRepository implements IdempotencyStore {
+    static final int PURGE_BATCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> find(String key) {
+        return jdbcTemplate.query(
+                        "select fingerprint, completed, response from ulab_edu.idempotency_key " +
+                                "where request_id = ? and expires_at > now()",
+                        (rs, rowNum) -> new IdempotencyRecord(rs.getString("fingerprint"),
+                                rs.getBoolean("completed"), rs.getString("response")),
+                        key)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Вставка и захват истёкшей записи выполняются одним upsert, поэтому ключ достаётся ровно одному экземпляру.
+     */
+    @Override
+    public boolean tryStart(String key, String fingerprint, String owner, Duration lease) {
+        return jdbcTemplate.update(
+                "insert into ulab_edu.idempotency_key (request_id, fingerprint, completed, owner_token, expires_at) " +
+                        "values (?, ?, false, ?, now() + ? * interval '1 millisecond') " +
+                        "on conflict (request_id) do update set fingerprint = excluded.fingerprint, " +
+                        "completed = false, response = null, owner_token = excluded.owner_token, " +
+                        "expires_at = excluded.expires_at " +
+                        "where ulab_edu.idempotency_key.expires_at <= now()",
+                key, fingerprint, owner, lease.toMillis()) == 1;
+    }
+
+    @Override
+    public boolean complete(String key, String owner, String response, Duration ttl) {
+        return jdbcTemplate.update(
+                "update ulab_edu.idempotency_key set completed = true, response = ?, " +
+                        "expires_at = now() + ? * interval '1 millisecond' " +
+                        "where request_id = ? and owner_token = ? and completed = false",
+                response, ttl.toMillis(), key, owner) == 1;
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        jdbcTemplate.update("delete from ulab_edu.idempotency_key " +
+                "where request_id = ? and owner_token = ? and completed = false", key, owner);
+    }
+
+    /**
+     * Истёкшие ключи удаляются порциями, каждая в своей транзакции, чтобы не держать долгую блокировку таблицы;
+     * порции удаляются, пока не останется истёкших ключей.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT10M}")
+    public int purgeExpired() {
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                    "delete from ulab_edu.idempotency_key where request_id in (" +
+                            "select request_id from ulab_edu.idempotency_key where expires_at <= now() limit ?)",
+                    PURGE_BATCH_SIZE);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        return purged;
+    }
+}
@@ -1,17 +1,27 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.*;
 
 @Repository
 public interface UserRepository extends JpaRepository<Person, Long> {
+    String EXPORT_FETCH_SIZE = "1000";
 
     /*
     User has books - book - started - comited status - other logic
@@ -19,10 +29,47 @@ public interface UserRepository extends JpaRepository<Person, Long> {
     User has books - book - finished
      */
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    /**
+     * Версия пользователя увеличивается при фиксации транзакции, даже если изменились только его книги,
+     * поэтому параллельные изменения одного пользователя конфликтуют, а строки не блокируются до записи.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
     @Query("select p from Person p where p.id = :id")
-    Optional<Person> findByIdForUpdate(long id);
+    Optional<Person> findByIdForVersionIncrement(long id);
+
+    @Query("select p.id as userId, p.fullName as fullName, p.title as title, p.age as age, p.version as version, " +
+            "b.id as bookId, b.title as bookTitle, b.author as bookAuthor, b.pageCount as bookPageCount " +
+            "from Person p left join p.bookSet b where p.id = :id order by b.id")
+    List<UserBookView> findUserWithBooksById(Long id);
+
+    /**
+     * Пачка пользователей с книгами одним запросом по id in (...) вместо запроса на каждого пользователя.
+     */
+    @Query("select p.id as userId, p.fullName as fullName, p.title as title, p.age as age, p.version as version, " +
+            "b.id as bookId, b.title as bookTitle, b.author as bookAuthor, b.pageCount as bookPageCount " +
+            "from Person p left join p.bookSet b where p.id in :ids order by p.id, b.id")
+    List<UserBookView> findUsersWithBooksByIds(Collection<Long> ids);
+
+    /**
+     * Все пользователи с книгами, упорядоченные по пользователю, для потоковой выгрузки.
+     * Читается серверным курсором порциями по {@value #EXPORT_FETCH_SIZE} строк, поэтому вызывать только в транзакции.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")})
+    @Query("select p.id as userId, p.fullName as fullName, p.title as title, p.age as age, p.version as version, " +
+            "b.id as bookId, b.title as bookTitle, b.author as bookAuthor, b.pageCount as bookPageCount " +
+            "from Person p left join p.bookSet b order by p.id, b.id")
+    Stream<UserBookView> streamAllUsersWithBooks();
+
+    /**
+     * Версия пользователя по первичному ключу без чтения книг: по ней строится ETag ответа get.
+     */
+    @Query("select p.version from Person p where p.id = :id")
+    Optional<Long> findVersionById(Long id);
 
-    boolean existsByTitle(String title);
-    Optional<Person> getByTitle(String title);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Person p where p.id = :id")
+    int deletePersonById(Long id);
 }
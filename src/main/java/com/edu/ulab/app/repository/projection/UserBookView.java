@@ -0,0 +1,25 @@
+package com.edu.ulab.app.repository.projection;
+
+/**
+ * Плоская строка выборки person LEFT JOIN book.
+ * Для пользователя без книг поля книги равны null.
+ */
+public interface UserBookView {
+    Long getUserId();
+
+    String getFullName();
+
+    String getTitle();
+
+    Integer getAge();
+
+    Long getVersion();
+
+    Long getBookId();
+
+    String getBookTitle();
+
+    String getBookAuthor();
+
+    Long getBookPageCount();
+}
@@ -0,0 +1,63 @@
+package com.edu.ulab.app.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.classify.Classifier;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+
+import static com.edu.ulab.app.logging.LogMarkers.SAMPLED;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Считает конфликты версий, повторные попытки и операции, которым не хватило попыток.
+ */
+@Slf4j
+public class OptimisticRetryMetricsListener extends RetryListenerSupport {
+    public static final String CONFLICTS = "ulab.update.conflicts";
+    public static final String RETRIES = "ulab.update.retries";
+    public static final String EXHAUSTED = "ulab.update.exhausted";
+
+    private final Classifier<Throwable, Boolean> conflictClassifier;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public OptimisticRetryMetricsListener(Classifier<Throwable, Boolean> conflictClassifier,
+                                          MeterRegistry meterRegistry) {
+        this.conflictClassifier = conflictClassifier;
+        this.conflicts = Counter.builder(CONFLICTS)
+                .description("Optimistic lock conflicts on user update")
+                .register(meterRegistry);
+        this.retries = Counter.builder(RETRIES)
+                .description("User update attempts repeated after a conflict")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder(EXHAUSTED)
+                .description("User updates that failed after all attempts conflicted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        if (conflictClassifier.classify(throwable)) {
+            conflicts.increment();
+            log.warn(SAMPLED, "Optimistic lock conflict {}", kv("attempt", context.getRetryCount()));
+        }
+    }
+
+    /**
+     * Последняя ошибка повтором не заканчивается, поэтому при неуспехе повторов на одну меньше, чем ошибок.
+     */
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        int retryCount = throwable == null ? context.getRetryCount() : context.getRetryCount() - 1;
+        if (retryCount > 0)
+            retries.increment(retryCount);
+        if (throwable != null && conflictClassifier.classify(throwable))
+            exhausted.increment();
+    }
+}
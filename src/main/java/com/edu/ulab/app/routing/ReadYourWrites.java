@@ -0,0 +1,53 @@
+package com.edu.ulab.app.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Окно read-your-writes: в течение window после изменения пользователя его чтения выполняются
+ * на основной БД, чтобы отстающая реплика не вернула (и не положила в кэш) старые данные,
+ * а прочитанное в окне не кладётся в кэш userWithBooks. Без маршрутизации на реплики
+ * {@link ReplicaRoutingDataSource#onPrimary} ничего не меняет, но окно всё равно нужно кэшу.
+ */
+public class ReadYourWrites {
+    private static final long MAX_TRACKED_USERS = 100_000;
+
+    private final Cache<Long, Boolean> recentWrites;
+
+    public ReadYourWrites(Duration window) {
+        this.recentWrites = window.isZero() || window.isNegative()
+                ? null
+                : Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(MAX_TRACKED_USERS)
+                .build();
+    }
+
+    public void recordWrite(Long userId) {
+        if (recentWrites != null && userId != null)
+            recentWrites.put(userId, Boolean.TRUE);
+    }
+
+    public boolean isRecentlyWritten(Long userId) {
+        return recentWrites != null && userId != null && recentWrites.getIfPresent(userId) != null;
+    }
+
+    public <T> T read(Long userId, Supplier<T> reader) {
+        if (isRecentlyWritten(userId))
+            return ReplicaRoutingDataSource.onPrimary(reader);
+        return reader.get();
+    }
+
+    /**
+     * Пачка читается на основной БД целиком, если хотя бы один пользователь из неё недавно изменялся.
+     */
+    public <T> T readAll(Collection<Long> userIds, Supplier<T> reader) {
+        if (recentWrites != null && !recentWrites.getAllPresent(userIds).isEmpty())
+            return ReplicaRoutingDataSource.onPrimary(reader);
+        return reader.get();
+    }
+}
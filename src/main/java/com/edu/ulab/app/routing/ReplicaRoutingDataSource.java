@@ -0,0 +1,215 @@
+package com.edu.ulab.app.routing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Направляет транзакции только на чтение на исправные реплики (по кругу), остальные — на основную БД.
+ * Решение принимается при получении соединения, поэтому источник оборачивается в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: соединение берётся
+ * на первом запросе, когда признак readOnly транзакции уже выставлен.
+ * Реплики периодически проверяются; если исправных нет или реплика не выдала соединение,
+ * чтение выполняется на основной БД.
+ * Метрики регистрируются через {@link MeterBinder}, так как реестр метрик сам зависит от DataSource.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private final int healthCheckTimeoutSeconds;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Duration healthCheckInterval,
+                                    Duration healthCheckTimeout) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+                .toList();
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выполняет reader на основной БД, даже если транзакция только на чтение.
+     * Должен вызываться внутри транзакции до первого запроса к БД.
+     */
+    public static <T> T onPrimary(Supplier<T> reader) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            if (previous == null)
+                PRIMARY_REQUIRED.remove();
+            else
+                PRIMARY_REQUIRED.set(previous);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        connections(meterRegistry, PRIMARY, primaryConnections);
+        connections(meterRegistry, "replica", replicaConnections);
+        FunctionCounter.builder("datasource.routing.failover", failovers, LongAdder::sum)
+                .description("Read-only connections served by the primary because no replica was available")
+                .register(meterRegistry);
+        replicas.forEach(replica -> Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                .description("Whether the replica passed the last health check")
+                .tag("replica", replica.name)
+                .register(meterRegistry));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || Boolean.TRUE.equals(PRIMARY_REQUIRED.get()))
+            return PRIMARY;
+        Replica replica = nextHealthyReplica();
+        if (replica == null) {
+            failovers.increment();
+            return PRIMARY;
+        }
+        return replica.name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        Replica replica = replicas.stream().filter(r -> r.name.equals(key)).findFirst().orElse(null);
+        if (replica == null) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.dataSource.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException exc) {
+            markHealthy(replica, false, exc);
+            failovers.increment();
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Состояние реплик по результатам последней проверки.
+     */
+    public Map<String, Boolean> replicaHealth() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        replicas.forEach(replica -> health.put(replica.name, replica.healthy));
+        return health;
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                markHealthy(replica, connection.isValid(healthCheckTimeoutSeconds), null);
+            } catch (SQLException exc) {
+                markHealthy(replica, false, exc);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(replica -> closeQuietly(replica.dataSource));
+        closeQuietly(primary);
+    }
+
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy)
+                return replica;
+        }
+        return null;
+    }
+
+    private void markHealthy(Replica replica, boolean healthy, Exception cause) {
+        if (replica.healthy == healthy)
+            return;
+        replica.healthy = healthy;
+        if (healthy)
+            log.info("Replica is back in rotation {}", kv("replica", replica.name));
+        else
+            log.warn("Replica is out of rotation {} {}", kv("replica", replica.name),
+                    kv("error", cause == null ? "connection is not valid" : cause.getMessage()));
+    }
+
+    private static void connections(MeterRegistry meterRegistry, String target, LongAdder count) {
+        FunctionCounter.builder("datasource.routing.connections", count, LongAdder::sum)
+                .description("Connections acquired through the routing data source")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception exc) {
+                log.warn("Failed to close data source {}", kv("error", exc.getMessage()));
+            }
+        }
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
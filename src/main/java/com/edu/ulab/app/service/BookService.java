@@ -8,12 +8,18 @@ import java.util.List;
 public interface BookService {
     BookDto createBook(BookDto bookDto);
 
+    List<BookDto> createBooks(Long userId, List<BookDto> bookDtoList);
+
     BookDto updateBook(BookDto bookDto);
 
+    List<BookDto> syncBooks(Long userId, List<BookDto> bookDtoList);
+
     BookDto getBookById(Long id);
 
     List<BookDto> getAllBooksByUserId(Long userId);
 
+    List<BookDto> getBooksPageByUserId(Long userId, long afterBookId, int limit);
+
     void deleteBookById(Long id);
 
     void deleteAllBooksByUserId(Long userId);
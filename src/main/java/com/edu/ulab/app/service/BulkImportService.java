@@ -0,0 +1,10 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.bulk.UserBookRequestReader;
+import com.edu.ulab.app.dto.BulkImportChunkReport;
+
+import java.util.function.Consumer;
+
+public interface BulkImportService {
+    void importUsersWithBooks(UserBookRequestReader reader, Consumer<BulkImportChunkReport> reportConsumer);
+}
@@ -0,0 +1,7 @@
+package com.edu.ulab.app.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    <T> T execute(String requestId, String operation, Object request, Class<T> responseType, Supplier<T> action);
+}
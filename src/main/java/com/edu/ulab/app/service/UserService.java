@@ -1,8 +1,13 @@
 package com.edu.ulab.app.service;
 
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface UserService {
     UserDto createUser(UserDto userDto);
@@ -11,5 +16,13 @@ public interface UserService {
 
     UserDto getUserById(Long id);
 
+    long getUserVersion(Long id);
+
+    List<UserBookView> getUserWithBooksById(Long id);
+
+    List<UserBookView> getUsersWithBooksByIds(Collection<Long> ids);
+
+    Stream<UserBookView> streamAllUsersWithBooks();
+
     void deleteUserById(Long id);
 }
@@ -6,18 +6,31 @@ import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.EmptyFieldException;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.pagination.BookCursor;
 import com.edu.ulab.app.repository.BookRepository;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.BookService;
-import com.github.dockerjava.api.exception.NotAcceptableException;
+import com.edu.ulab.app.validation.EntityValidators;
+import com.edu.ulab.app.validation.Violation;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.edu.ulab.app.config.MetricsConfig.SERVICE_TIMER;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Service
+@Timed(SERVICE_TIMER)
 public class BookServiceImpl implements BookService {
+    /**
+     * Книг в одном delete ... in (:ids): с запасом ниже предела pgjdbc в 32767 параметров на запрос.
+     */
+    public static final int DELETE_CHUNK_SIZE = 1_000;
 
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
@@ -39,67 +52,165 @@ public class BookServiceImpl implements BookService {
 
         Book book = bookMapper.bookDtoToBook(bookDto);
         book.setPerson(gotPerson);
-        log.info("Mapped book: {}", book);
         checkOnNullAndEmptyValues(book);
         Book savedBook = bookRepository.save(book);
-        log.info("Saved book: {}", savedBook);
+        log.info("Saved book {} {}", kv("bookId", savedBook.getId()), kv("userId", gotPerson.getId()));
 
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Override
+    public List<BookDto> createBooks(Long userId, List<BookDto> bookDtoList) {
+        Person gotPerson = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User with such id not found"));
+
+        List<Book> books = bookDtoList.stream()
+                .map(bookMapper::bookDtoToBook)
+                .peek(book -> book.setPerson(gotPerson))
+                .toList();
+        log.debug("Mapped books {} {}", kv("userId", userId), kv("bookCount", books.size()));
+        checkOnNullAndEmptyValues(books);
+
+        List<Book> savedBooks = bookRepository.saveAll(books);
+        log.info("Saved books {} {}", kv("userId", userId), kv("bookCount", savedBooks.size()));
+        return savedBooks.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         Person gotPerson = userRepository.findById(bookDto.getUserId())
                 .orElseThrow(() -> new NotFoundException("User with such id not found"));
 
-        Book book = bookMapper.bookDtoToBook(bookDto);
+        Book book = bookRepository.findById(bookDto.getId())
+                .orElseThrow(() -> new NotFoundException("Book was not found"));
+        bookMapper.updateBookFromBookDto(bookDto, book);
         book.setPerson(gotPerson);
-        log.info("Mapped book: {}", book);
         checkOnNullAndEmptyValues(book);
         Book updatedBook = bookRepository.save(book);
-        log.info("Updated book: {}", updatedBook);
+        log.info("Updated book {} {}", kv("bookId", updatedBook.getId()), kv("userId", gotPerson.getId()));
         return bookMapper.bookToBookDto(updatedBook);
     }
 
+    /**
+     * Приводит набор книг пользователя к переданному списку.
+     * Книги сопоставляются по натуральному ключу (title + author): совпавшие обновляются
+     * только при изменении полей, новые вставляются, отсутствующие в запросе удаляются
+     * запросами по списку id частями по {@link #DELETE_CHUNK_SIZE}.
+     */
+    @Override
+    public List<BookDto> syncBooks(Long userId, List<BookDto> bookDtoList) {
+        Person gotPerson = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User with such id not found"));
+
+        List<Book> foundBooks = bookRepository.findAllByPersonId(userId);
+        Map<BookKey, Deque<Book>> currentBooks = foundBooks.stream()
+                .collect(Collectors.groupingBy(BookKey::of, LinkedHashMap::new,
+                        Collectors.toCollection(ArrayDeque::new)));
+        log.debug("Got current books {} {}", kv("userId", userId), kv("bookCount", foundBooks.size()));
+
+        List<Book> books = bookDtoList.stream()
+                .map(bookMapper::bookDtoToBook)
+                .peek(book -> book.setPerson(gotPerson))
+                .toList();
+        checkOnNullAndEmptyValues(books);
+
+        List<Book> syncedBooks = new ArrayList<>(books.size());
+        List<Book> booksToInsert = new ArrayList<>();
+        int updatedCount = 0;
+        for (Book book : books) {
+            Deque<Book> sameKeyBooks = currentBooks.get(BookKey.of(book));
+            Book currentBook = sameKeyBooks == null ? null : sameKeyBooks.poll();
+            if (currentBook == null) {
+                book.setId(null);
+                booksToInsert.add(book);
+                syncedBooks.add(book);
+                continue;
+            }
+            if (currentBook.getPageCount() != book.getPageCount()) {
+                currentBook.setPageCount(book.getPageCount());
+                updatedCount++;
+            }
+            syncedBooks.add(currentBook);
+        }
+
+        List<Long> bookIdsToDelete = currentBooks.values()
+                .stream()
+                .flatMap(Collection::stream)
+                .map(Book::getId)
+                .toList();
+        for (int from = 0; from < bookIdsToDelete.size(); from += DELETE_CHUNK_SIZE)
+            bookRepository.deleteAllByPersonIdAndIdIn(userId,
+                    bookIdsToDelete.subList(from, Math.min(from + DELETE_CHUNK_SIZE, bookIdsToDelete.size())));
+        bookRepository.saveAll(booksToInsert);
+        log.info("Synced books {} {} {} {}", kv("userId", userId), kv("inserted", booksToInsert.size()),
+                kv("updated", updatedCount), kv("deleted", bookIdsToDelete.size()));
+
+        return syncedBooks.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         Book gotBook = bookRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Book was not found"));
-        log.info("Got book: {}", gotBook);
+        log.info("Got book {}", kv("bookId", id));
         return bookMapper.bookToBookDto(gotBook);
     }
 
     @Override
     public List<BookDto> getAllBooksByUserId(Long userId) {
-        log.info("Trying to get all book with userId: {}", userId);
+        log.info("Trying to get all books {}", kv("userId", userId));
         return bookRepository.findAllByPersonId(userId)
                 .stream()
                 .map(bookMapper::bookToBookDto)
                 .toList();
     }
 
+    @Override
+    public List<BookDto> getBooksPageByUserId(Long userId, long afterBookId, int limit) {
+        log.info("Trying to get books page {} {} {}", kv("userId", userId), kv("afterBookId", afterBookId),
+                kv("limit", limit));
+        List<Book> books = bookRepository.findPageByPersonId(userId, afterBookId, PageRequest.ofSize(limit));
+        if (books.isEmpty() && afterBookId == BookCursor.FIRST_PAGE_AFTER_ID && !userRepository.existsById(userId))
+            throw new NotFoundException("User was not found.");
+        return books.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public void deleteBookById(Long id) {
         if (!bookRepository.existsById(id))
             throw new NotFoundException("No book with requested id to delete");
-        log.info("Trying to delete book with id: {}", id);
+        log.info("Trying to delete book {}", kv("bookId", id));
         bookRepository.deleteById(id);
-        log.info("Book was deleted with id: {}", id);
+        log.info("Book was deleted {}", kv("bookId", id));
     }
 
     @Override
     public void deleteAllBooksByUserId(Long userId) {
-        log.info("Trying to delete books with userId: {}", userId);
-        bookRepository.deleteAllByPersonId(userId);
-        log.info("Books was deleted with userId: {}", userId);
+        log.info("Trying to delete books {}", kv("userId", userId));
+        int deletedCount = bookRepository.deleteAllByPersonId(userId);
+        log.info("Books were deleted {} {}", kv("userId", userId), kv("bookCount", deletedCount));
+    }
+
+    private record BookKey(String title, String author) {
+        static BookKey of(Book book) {
+            return new BookKey(book.getTitle(), book.getAuthor());
+        }
     }
 
     private void checkOnNullAndEmptyValues(Book book) {
-        if (book.getTitle() == null ||
-                book.getTitle().matches("^\s*$") ||
-                book.getAuthor() == null ||
-                book.getAuthor().matches("^\s*$") ||
-                book.getPageCount() <= 0)
+        if (!EntityValidators.BOOK.isValid(book))
             throw new EmptyFieldException("Book fields cannot be equals null or empty");
     }
+
+    private void checkOnNullAndEmptyValues(List<Book> books) {
+        List<Violation> violations = EntityValidators.BOOK.validateAll(books);
+        if (!violations.isEmpty())
+            throw new EmptyFieldException("Book fields cannot be equals null or empty: " + violations);
+    }
 }
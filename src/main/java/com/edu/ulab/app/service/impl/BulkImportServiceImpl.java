@@ -0,0 +1,175 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.bulk.UserBookRequestReader;
+import com.edu.ulab.app.dto.BulkImportChunkReport;
+import com.edu.ulab.app.dto.BulkImportRejection;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.BulkLoadRepository;
+import com.edu.ulab.app.service.BulkImportService;
+import com.edu.ulab.app.validation.EntityValidators;
+import com.edu.ulab.app.validation.Violation;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.edu.ulab.app.config.MetricsConfig.SERVICE_TIMER;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Импорт читает вход порциями по {@code bulk-import.chunk-size} пользователей,
+ * поэтому потребление памяти не зависит от размера входа.
+ * Каждая порция проверяется целиком и загружается через COPY в своей транзакции:
+ * ошибка загрузки порции не откатывает уже загруженные.
+ */
+@Slf4j
+@Service
+@Timed(SERVICE_TIMER)
+public class BulkImportServiceImpl implements BulkImportService {
+    private final BulkLoadRepository bulkLoadRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final int chunkSize;
+
+    public BulkImportServiceImpl(BulkLoadRepository bulkLoadRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 UserMapper userMapper,
+                                 BookMapper bookMapper,
+                                 @Value("${bulk-import.chunk-size:1000}") int chunkSize) {
+        this.bulkLoadRepository = bulkLoadRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void importUsersWithBooks(UserBookRequestReader reader, Consumer<BulkImportChunkReport> reportConsumer) {
+        List<UserBookRequest> chunk = new ArrayList<>(chunkSize);
+        int chunkNumber = 0;
+        long firstRecord = 0;
+        try {
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == chunkSize) {
+                    reportConsumer.accept(importChunk(chunkNumber++, firstRecord, chunk));
+                    firstRecord += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (BulkImportFormatException exc) {
+            long failedRecord = firstRecord + chunk.size();
+            log.warn("Bulk import stopped on malformed input {} {}", kv("record", failedRecord),
+                    kv("error", exc.getMessage()));
+            BulkImportChunkReport report = importChunk(chunkNumber, firstRecord, chunk);
+            report.setError("Record " + failedRecord + ": " + exc.getMessage());
+            reportConsumer.accept(report);
+            return;
+        }
+        if (!chunk.isEmpty() || chunkNumber == 0)
+            reportConsumer.accept(importChunk(chunkNumber, firstRecord, chunk));
+    }
+
+    private BulkImportChunkReport importChunk(int chunkNumber, long firstRecord, List<UserBookRequest> chunk) {
+        List<BulkImportRejection> rejected = new ArrayList<>();
+        Map<String, ImportRecord> recordsByTitle = new LinkedHashMap<>();
+        for (int index = 0; index < chunk.size(); index++) {
+            long record = firstRecord + index;
+            ImportRecord importRecord = toImportRecord(record, chunk.get(index), rejected);
+            if (importRecord != null && recordsByTitle.putIfAbsent(importRecord.person().getTitle(), importRecord) != null)
+                rejected.add(new BulkImportRejection(record, "User title is not unique"));
+        }
+
+        BulkImportChunkReport report = BulkImportChunkReport.builder()
+                .chunk(chunkNumber)
+                .firstRecord(firstRecord)
+                .receivedUsers(chunk.size())
+                .rejected(rejected)
+                .build();
+        if (recordsByTitle.isEmpty())
+            return report;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String title : bulkLoadRepository.findExistingTitles(recordsByTitle.keySet()))
+                    rejected.add(new BulkImportRejection(recordsByTitle.remove(title).record(), "User title is not unique"));
+                load(recordsByTitle.values(), report);
+            });
+        } catch (DataAccessException exc) {
+            log.warn("Bulk import chunk was not loaded {} {}", kv("chunk", chunkNumber), kv("error", exc.getMessage()));
+            report.setImportedUsers(0);
+            report.setImportedBooks(0);
+            report.setError("Chunk was not loaded: " + exc.getMostSpecificCause().getMessage());
+        }
+        rejected.sort(Comparator.comparingLong(BulkImportRejection::getRecord));
+        log.info("Bulk import chunk {} {} {} {}", kv("chunk", chunkNumber), kv("userCount", report.getImportedUsers()),
+                kv("bookCount", report.getImportedBooks()), kv("rejectedCount", rejected.size()));
+        return report;
+    }
+
+    private void load(Collection<ImportRecord> records, BulkImportChunkReport report) {
+        List<Person> persons = records.stream()
+                .map(ImportRecord::person)
+                .toList();
+        if (persons.isEmpty())
+            return;
+        List<Book> books = records.stream()
+                .flatMap(importRecord -> importRecord.books().stream())
+                .toList();
+
+        long[] ids = bulkLoadRepository.allocateIds(persons.size() + books.size());
+        int idIndex = 0;
+        for (Person person : persons)
+            person.setId(ids[idIndex++]);
+        for (Book book : books)
+            book.setId(ids[idIndex++]);
+
+        bulkLoadRepository.copyPersons(persons);
+        bulkLoadRepository.copyBooks(books);
+        report.setImportedUsers(persons.size());
+        report.setImportedBooks(books.size());
+    }
+
+    private ImportRecord toImportRecord(long record, UserBookRequest request, List<BulkImportRejection> rejected) {
+        if (request == null || request.getUserRequest() == null) {
+            rejected.add(new BulkImportRejection(record, "User is missing"));
+            return null;
+        }
+        Person person = userMapper.userRequestToPerson(request.getUserRequest());
+        List<Book> books = Optional.ofNullable(request.getBookRequests())
+                .orElse(List.of())
+                .stream()
+                .filter(Objects::nonNull)
+                .map(bookMapper::bookRequestToBook)
+                .peek(book -> book.setPerson(person))
+                .toList();
+
+        List<Violation> personViolations = EntityValidators.PERSON.validate(person);
+        List<Violation> bookViolations = EntityValidators.BOOK.validateAll(books);
+        if (personViolations.isEmpty() && bookViolations.isEmpty())
+            return new ImportRecord(record, person, books);
+
+        String fields = Stream.concat(
+                        personViolations.stream().map(Violation::getField),
+                        bookViolations.stream().map(violation -> "bookRequests" + violation))
+                .collect(Collectors.joining(", "));
+        rejected.add(new BulkImportRejection(record, "Fields cannot be equals null or empty: " + fields));
+        return null;
+    }
+
+    private record ImportRecord(long record, Person person, List<Book> books) {
+    }
+}
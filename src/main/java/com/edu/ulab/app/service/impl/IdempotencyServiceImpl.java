@@ -0,0 +1,214 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.exception.IdempotencyKeyReuseException;
+import com.edu.ulab.app.exception.RequestInProgressException;
+import com.edu.ulab.app.idempotency.IdempotencyRecord;
+import com.edu.ulab.app.idempotency.IdempotencyStore;
+import com.edu.ulab.app.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Повтор запроса с тем же rqid не выполняет операцию заново, а возвращает сохранённый ответ.
+ * Дубликат, пришедший на этот же экземпляр во время выполнения первого запроса, ждёт его результат
+ * (в том числе ошибку) не дольше wait-timeout; если первый запрос не успел или ключ захвачен другим экземпляром,
+ * возвращается {@link RequestInProgressException}. Ожидание занимает поток jdbcExecutor, поэтому оно короткое:
+ * иначе при шторме повторов дубликаты одного медленного запроса заняли бы весь пул.
+ * Сохраняются только успешные ответы: после ошибки ключ освобождается и повтор выполняется заново.
+ * Ответ записывается и ключ освобождается, только пока ключ захвачен этим выполнением: если lease истёк
+ * и ключ захватил другой экземпляр, его запись не перезаписывается.
+ * Операция выполняется только после успешного захвата ключа.
+ * Пустой rqid отключает идемпотентность для запроса.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final int START_ATTEMPTS = 3;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration waitTimeout;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter joined;
+    private final Counter rejected;
+
+    public IdempotencyServiceImpl(IdempotencyStore idempotencyStore,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                                  @Value("${idempotency.lease:PT30S}") Duration lease,
+                                  @Value("${idempotency.wait-timeout:PT0.3S}") Duration waitTimeout) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.waitTimeout = waitTimeout;
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.joined = requests(meterRegistry, "joined");
+        this.rejected = requests(meterRegistry, "rejected");
+    }
+
+    @Override
+    public <T> T execute(String requestId, String operation, Object request, Class<T> responseType, Supplier<T> action) {
+        if (!StringUtils.hasText(requestId))
+            return action.get();
+
+        String fingerprint = fingerprint(operation, request);
+        InFlight execution = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(requestId, execution);
+        if (running != null)
+            return join(requestId, fingerprint, running, responseType);
+
+        try {
+            String owner = UUID.randomUUID().toString();
+            Optional<IdempotencyRecord> stored = acquire(requestId, fingerprint, owner);
+            if (stored.isPresent())
+                return replay(requestId, fingerprint, stored.get(), execution, responseType);
+
+            T response = runAction(requestId, owner, action);
+            String json = write(response);
+            if (!idempotencyStore.complete(requestId, owner, json, ttl))
+                log.warn("Idempotency lease expired before the response was stored {}", kv("requestId", requestId));
+            execution.result().complete(json);
+            executed.increment();
+            return response;
+        } catch (RuntimeException exc) {
+            execution.result().completeExceptionally(exc);
+            throw exc;
+        } finally {
+            inFlight.remove(requestId, execution);
+        }
+    }
+
+    /**
+     * Захватывает ключ (пустой результат) или возвращает уже сохранённую запись. Если tryStart проиграл,
+     * а записи уже нет (владелец упал и освободил ключ), захват повторяется не больше START_ATTEMPTS раз:
+     * действие выполняется только после успешного tryStart.
+     */
+    private Optional<IdempotencyRecord> acquire(String requestId, String fingerprint, String owner) {
+        for (int attempt = 0; attempt < START_ATTEMPTS; attempt++) {
+            Optional<IdempotencyRecord> stored = idempotencyStore.find(requestId);
+            if (stored.isPresent() || idempotencyStore.tryStart(requestId, fingerprint, owner, lease))
+                return stored;
+        }
+        rejected.increment();
+        throw new RequestInProgressException("Request with the same rqid is in progress");
+    }
+
+    private <T> T runAction(String requestId, String owner, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException exc) {
+            idempotencyStore.release(requestId, owner);
+            throw exc;
+        }
+    }
+
+    private <T> T replay(String requestId, String fingerprint, IdempotencyRecord stored, InFlight execution,
+                         Class<T> responseType) {
+        checkFingerprint(requestId, fingerprint, stored.getFingerprint());
+        if (!stored.isCompleted()) {
+            rejected.increment();
+            throw new RequestInProgressException("Request with the same rqid is in progress");
+        }
+        execution.result().complete(stored.getResponse());
+        replayed.increment();
+        log.info("Replayed idempotent response {}", kv("requestId", requestId));
+        return read(stored.getResponse(), responseType);
+    }
+
+    private <T> T join(String requestId, String fingerprint, InFlight running, Class<T> responseType) {
+        checkFingerprint(requestId, fingerprint, running.fingerprint());
+        try {
+            String json = running.result().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            joined.increment();
+            log.info("Joined in-flight idempotent request {}", kv("requestId", requestId));
+            return read(json, responseType);
+        } catch (ExecutionException exc) {
+            joined.increment();
+            if (exc.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(exc.getCause());
+        } catch (TimeoutException exc) {
+            rejected.increment();
+            throw new RequestInProgressException("Request with the same rqid is in progress");
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new RequestInProgressException("Request with the same rqid is in progress");
+        }
+    }
+
+    private void checkFingerprint(String requestId, String fingerprint, String storedFingerprint) {
+        if (!fingerprint.equals(storedFingerprint)) {
+            rejected.increment();
+            log.warn("Idempotency key reused with a different request {}", kv("requestId", requestId));
+            throw new IdempotencyKeyReuseException("Request id was already used for a different request");
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private <T> T read(String json, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(json, responseType);
+        } catch (JsonProcessingException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Requests with an idempotency key by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<String> result) {
+    }
+}
@@ -7,15 +7,28 @@ import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotUniqueException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.validation.EntityValidators;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
-import java.util.Objects;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.edu.ulab.app.config.MetricsConfig.SERVICE_TIMER;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Service
+@Timed(SERVICE_TIMER)
 public class UserServiceImpl implements UserService {
+    private static final String TITLE_UNIQUE_INDEX = "idx_ulab_edu_person_title";
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
@@ -29,57 +42,106 @@ public class UserServiceImpl implements UserService {
     @Override
     public UserDto createUser(UserDto userDto) {
         Person user = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", user);
-
         checkOnNullAndEmptyValues(user);
-        if (userRepository.existsByTitle(user.getTitle()))
-            throw new NotUniqueException("User title is not unique");
-
-        Person savedUser = userRepository.save(user);
-        log.info("Saved user: {}", savedUser);
+        Person savedUser = saveWithUniqueTitle(user);
+        log.info("Saved user {}", kv("userId", savedUser.getId()));
         return userMapper.personToUserDto(savedUser);
     }
 
+    /**
+     * Пользователь читается без блокировки и сохраняется с проверкой версии:
+     * при параллельном изменении того же пользователя выбрасывается OptimisticLockingFailureException.
+     */
     @Override
     public UserDto updateUser(UserDto userDto) {
-        Person user = userMapper.userDtoToPerson(userDto);
-        log.info("Mapped user: {}", user);
-
+        Person user = userRepository.findByIdForVersionIncrement(userDto.getId())
+                .orElseThrow(() -> new NotFoundException("User was not found."));
+        userMapper.updatePersonFromUserDto(userDto, user);
         checkOnNullAndEmptyValues(user);
-        if (userRepository.existsByTitle(user.getTitle()))
-            if (!userRepository.getByTitle(user.getTitle()).get().getId().equals(user.getId()))
-                throw new NotUniqueException("User title is not unique");
-
-        Person updatedUser = userRepository.save(user);
-        log.info("Updated user: {}", updatedUser);
+        Person updatedUser = saveWithUniqueTitle(user);
+        log.info("Updated user {}", kv("userId", updatedUser.getId()));
         return userMapper.personToUserDto(updatedUser);
     }
 
     @Override
     public UserDto getUserById(Long id) {
-        log.info("Trying to find user with id: {}", id);
+        log.info("Trying to find user {}", kv("userId", id));
         Person gotUser = userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("User was not found."));
-        log.info("Got user: {}", gotUser);
+        log.info("Got user {}", kv("userId", id));
         return userMapper.personToUserDto(gotUser);
     }
 
+    @Override
+    public long getUserVersion(Long id) {
+        long version = userRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("User was not found."));
+        log.debug("Got user version {} {}", kv("userId", id), kv("version", version));
+        return version;
+    }
+
+    @Override
+    public List<UserBookView> getUserWithBooksById(Long id) {
+        log.info("Trying to find user with books {}", kv("userId", id));
+        List<UserBookView> userBookViews = userRepository.findUserWithBooksById(id);
+        if (userBookViews.isEmpty())
+            throw new NotFoundException("User was not found.");
+        log.debug("Got user book rows {} {}", kv("userId", id), kv("rowCount", userBookViews.size()));
+        return userBookViews;
+    }
+
+    /**
+     * Отсутствующие пользователи в результат не попадают; строки упорядочены по пользователю и книге.
+     */
+    @Override
+    public List<UserBookView> getUsersWithBooksByIds(Collection<Long> ids) {
+        log.info("Trying to find users with books {}", kv("userCount", ids.size()));
+        List<UserBookView> userBookViews = userRepository.findUsersWithBooksByIds(ids);
+        log.debug("Got users book rows {}", kv("rowCount", userBookViews.size()));
+        return userBookViews;
+    }
+
+    /**
+     * Поток открыт на курсоре БД: закрывать после чтения и читать внутри транзакции.
+     */
+    @Override
+    public Stream<UserBookView> streamAllUsersWithBooks() {
+        log.info("Streaming all users with books");
+        return userRepository.streamAllUsersWithBooks();
+    }
+
     @Override
     public void deleteUserById(Long id) {
-        if (!userRepository.existsById(id))
+        log.info("Trying to delete user {}", kv("userId", id));
+        if (userRepository.deletePersonById(id) == 0)
             throw new NotFoundException("No user with requested id to delete");
+        log.info("User was deleted {}", kv("userId", id));
+    }
+
+    /**
+     * Уникальность title обеспечивает индекс idx_ulab_edu_person_title,
+     * поэтому вместо предварительной проверки нарушение индекса переводится в NotUniqueException.
+     */
+    private Person saveWithUniqueTitle(Person user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException exc) {
+            if (isTitleUniqueViolation(exc))
+                throw new NotUniqueException("User title is not unique");
+            throw exc;
+        }
+    }
 
-        log.info("Trying to delete user with id: {}", id);
-        userRepository.deleteById(id);
-        log.info("User was deleted with id: {}", id);
+    private boolean isTitleUniqueViolation(DataIntegrityViolationException exc) {
+        return ExceptionUtils.getThrowableList(exc)
+                .stream()
+                .filter(ConstraintViolationException.class::isInstance)
+                .map(ConstraintViolationException.class::cast)
+                .anyMatch(violation -> TITLE_UNIQUE_INDEX.equalsIgnoreCase(violation.getConstraintName()));
     }
 
     private void checkOnNullAndEmptyValues(Person user) {
-        if (user.getFullName() == null ||
-                user.getFullName().matches("^\s*$") ||
-                user.getTitle() == null ||
-                user.getTitle().matches("^\s*$") ||
-                user.getAge() <= 0)
+        if (!EntityValidators.PERSON.isValid(user))
             throw new EmptyFieldException("User fields cannot be equals null or empty");
     }
 }
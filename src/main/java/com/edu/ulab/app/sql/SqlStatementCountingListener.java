@@ -0,0 +1,25 @@
+package com.edu.ulab.app.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Listener datasource-proxy, учитывающий выполненные запросы в {@link SqlStatementStats} текущего потока.
+ * Запросы вне HTTP-запроса (Liquibase, фоновые задачи) не учитываются.
+ */
+public class SqlStatementCountingListener implements QueryExecutionListener {
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlStatementStats stats = SqlStatementStats.current();
+        if (stats == null)
+            return;
+        queryInfoList.forEach(queryInfo -> stats.record(queryInfo.getQuery()));
+    }
+}
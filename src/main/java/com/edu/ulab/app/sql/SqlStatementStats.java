@@ -0,0 +1,107 @@
+package com.edu.ulab.app.sql;
+
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Счётчики SQL-запросов одного HTTP-запроса: по типу (select/insert/update/delete) и по форме запроса.
+ * Привязывается к потоку через {@link #bind}; в пул jdbcExecutor переносится TaskDecorator'ом вместе с MDC,
+ * поэтому запросы, выполненные в потоке пула, попадают в счётчики исходного HTTP-запроса.
+ */
+public class SqlStatementStats {
+    /**
+     * Сколько разных форм запросов запоминается; остальные учитываются только в общих счётчиках.
+     */
+    static final int MAX_SHAPES = 100;
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final LongAdder total = new LongAdder();
+    private final Map<QueryType, LongAdder> byType = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byShape = new ConcurrentHashMap<>();
+
+    public static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Привязывает счётчики к текущему потоку и возвращает ранее привязанные, чтобы их можно было восстановить.
+     */
+    public static SqlStatementStats bind(SqlStatementStats stats) {
+        SqlStatementStats previous = CURRENT.get();
+        if (stats == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(stats);
+        return previous;
+    }
+
+    /**
+     * Учитывает один запрос; JDBC batch учитывается один раз, как и в SQLStatementCountValidator.
+     */
+    public void record(String sql) {
+        total.increment();
+        byType.computeIfAbsent(QueryUtils.getQueryType(sql), type -> new LongAdder()).increment();
+        String shape = shapeOf(sql);
+        LongAdder shapeCount = byShape.get(shape);
+        if (shapeCount == null && byShape.size() < MAX_SHAPES)
+            shapeCount = byShape.computeIfAbsent(shape, key -> new LongAdder());
+        if (shapeCount != null)
+            shapeCount.increment();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long count(QueryType type) {
+        LongAdder count = byType.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Формы запросов, выполненные не меньше threshold раз (признак N+1), по убыванию количества.
+     */
+    public Map<String, Long> repeatedShapes(int threshold) {
+        return shapes(Integer.MAX_VALUE, threshold);
+    }
+
+    /**
+     * limit самых частых форм запросов по убыванию количества.
+     */
+    public Map<String, Long> topShapes(int limit) {
+        return shapes(limit, 1);
+    }
+
+    private Map<String, Long> shapes(int limit, int threshold) {
+        Map<String, Long> shapes = new LinkedHashMap<>();
+        byShape.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> shapes.put(entry.getKey(), entry.getValue()));
+        return shapes;
+    }
+
+    /**
+     * Форма запроса: литералы заменены на ?, списки параметров IN (?, ?, ...) свёрнуты в (?),
+     * пробельные символы схлопнуты. Запросы, отличающиеся только параметрами, имеют одну форму.
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,81 @@
+package com.edu.ulab.app.validation;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Набор правил проверки полей сущности, собранный один раз.
+ * Проверка одной сущности ({@link #isValid}) не выделяет память и не использует регулярные выражения,
+ * проверка пакета ({@link #validateAll}) за один проход возвращает все нарушения.
+ */
+public final class EntityValidator<T> {
+    private final Rule<T>[] rules;
+
+    private EntityValidator(Rule<T>[] rules) {
+        this.rules = rules;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public boolean isValid(T entity) {
+        for (Rule<T> rule : rules) {
+            if (!rule.test(entity))
+                return false;
+        }
+        return true;
+    }
+
+    public List<Violation> validate(T entity) {
+        return validateAll(List.of(entity));
+    }
+
+    public List<Violation> validateAll(List<? extends T> entities) {
+        List<Violation> violations = null;
+        for (int index = 0; index < entities.size(); index++) {
+            T entity = entities.get(index);
+            for (Rule<T> rule : rules) {
+                if (rule.test(entity))
+                    continue;
+                if (violations == null)
+                    violations = new ArrayList<>();
+                violations.add(new Violation(index, rule.field()));
+            }
+        }
+        return violations == null ? List.of() : violations;
+    }
+
+    public static final class Builder<T> {
+        private final List<Rule<T>> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder<T> notBlank(String field, Function<T, String> getter) {
+            rules.add(new Rule<>(field, entity -> !StringUtils.isBlank(getter.apply(entity))));
+            return this;
+        }
+
+        public Builder<T> positive(String field, ToLongFunction<T> getter) {
+            rules.add(new Rule<>(field, entity -> getter.applyAsLong(entity) > 0));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public EntityValidator<T> build() {
+            return new EntityValidator<>(rules.toArray(Rule[]::new));
+        }
+    }
+
+    private record Rule<T>(String field, Predicate<T> check) {
+        boolean test(T entity) {
+            return check.test(entity);
+        }
+    }
+}
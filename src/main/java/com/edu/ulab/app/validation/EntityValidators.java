@@ -0,0 +1,23 @@
+package com.edu.ulab.app.validation;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Общие правила проверки сущностей для сервисов и массового импорта.
+ */
+@UtilityClass
+public class EntityValidators {
+    public static final EntityValidator<Person> PERSON = EntityValidator.<Person>builder()
+            .notBlank("fullName", Person::getFullName)
+            .notBlank("title", Person::getTitle)
+            .positive("age", Person::getAge)
+            .build();
+
+    public static final EntityValidator<Book> BOOK = EntityValidator.<Book>builder()
+            .notBlank("title", Book::getTitle)
+            .notBlank("author", Book::getAuthor)
+            .positive("pageCount", Book::getPageCount)
+            .build();
+}
@@ -0,0 +1,17 @@
+package com.edu.ulab.app.validation;
+
+import lombok.Value;
+
+/**
+ * Нарушение правила: позиция сущности в пакете и имя поля.
+ */
+@Value
+public class Violation {
+    int index;
+    String field;
+
+    @Override
+    public String toString() {
+        return "[" + index + "]." + field;
+    }
+}
@@ -0,0 +1,63 @@
+package com.edu.ulab.app.web;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_SMILE_VALUE;
+
+/**
+ * Сильный ETag ресурса пользователя по его версии и представлению и сравнение с If-None-Match.
+ * JSON, CBOR и Smile — разные байты, поэтому у каждого представления свой ETag: "7", "7-cbor", "7-smile".
+ * If-None-Match сравнивается слабо (RFC 7232, 3.2): префикс W/ не учитывается, * совпадает с любой версией.
+ */
+@UtilityClass
+public class ETags {
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final List<MediaType> REPRESENTATIONS =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    public static String of(long version, MediaType representation) {
+        if (MediaType.APPLICATION_CBOR.equals(representation))
+            return "\"" + version + "-cbor\"";
+        if (APPLICATION_SMILE.equals(representation))
+            return "\"" + version + "-smile\"";
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Представление по Accept: первое по качеству и точности из JSON, CBOR и Smile; без Accept — JSON.
+     * Ответ отдаётся с этим Content-Type, чтобы тело и ETag не разошлись с выбором конвертера.
+     */
+    public static MediaType representation(String accept) {
+        if (accept == null || accept.isBlank())
+            return MediaType.APPLICATION_JSON;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException exc) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        return accepted.stream()
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .flatMap(mediaType -> REPRESENTATIONS.stream().filter(mediaType::isCompatibleWith))
+                .findFirst()
+                .orElse(MediaType.APPLICATION_JSON);
+    }
+
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank())
+            return false;
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag)
+                .anyMatch(tag -> ANY.equals(tag) || etag.equals(tag));
+    }
+}
@@ -1,32 +1,68 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.bulk.UserBookRequestReader;
+import com.edu.ulab.app.dto.BulkImportChunkReport;
 import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.service.IdempotencyService;
 import com.edu.ulab.app.web.constant.WebConstant;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBatchResponse;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
 import com.edu.ulab.app.web.response.UserResponse;
+import com.edu.ulab.app.writebehind.UserUpdateCoalescer;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import static com.edu.ulab.app.config.JdbcExecutorConfig.JDBC_EXECUTOR;
+import static com.edu.ulab.app.web.constant.WebConstant.APPLICATION_SMILE_VALUE;
+import static com.edu.ulab.app.web.constant.WebConstant.DEFAULT_BOOK_PAGE_SIZE;
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @RestController
 @RequestMapping(value = WebConstant.VERSION_URL + "/user",
-        produces = MediaType.APPLICATION_JSON_VALUE)
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final ObjectMapper objectMapper;
+    private final Executor jdbcExecutor;
+    private final IdempotencyService idempotencyService;
+    private final UserUpdateCoalescer userUpdateCoalescer;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade,
+                          ObjectMapper objectMapper,
+                          @Qualifier(JDBC_EXECUTOR) Executor jdbcExecutor,
+                          IdempotencyService idempotencyService,
+                          UserUpdateCoalescer userUpdateCoalescer) {
         this.userDataFacade = userDataFacade;
+        this.objectMapper = objectMapper;
+        this.jdbcExecutor = jdbcExecutor;
+        this.idempotencyService = idempotencyService;
+        this.userUpdateCoalescer = userUpdateCoalescer;
     }
 
     @PostMapping(value = "/create")
@@ -35,11 +71,15 @@ public class UserController {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
-                                                @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
-        UserBookResponse response = userDataFacade.createUserWithBooks(request);
-        log.info("Response with created user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> createUserWithBooks(@RequestBody UserBookRequest request,
+                                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        return CompletableFuture.supplyAsync(() -> {
+            UserBookResponse response = idempotencyService.execute(requestId, "create", request,
+                    UserBookResponse.class, () -> userDataFacade.createUserWithBooks(request));
+            log.info("Response with created user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksIdList().size()));
+            return response;
+        }, jdbcExecutor);
     }
 
     @PutMapping(value = "/update/{userId}")
@@ -48,32 +88,163 @@ public class UserController {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse updateUserWithBooks(@RequestBody UserBookRequest request,
-                                                @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
-                                                @PathVariable Long userId) {
-        UserBookResponse response = userDataFacade.updateUserWithBooks(request, userId);
-        log.info("Response with updated user and his books: {}", response);
-        return response;
+    public CompletableFuture<UserBookResponse> updateUserWithBooks(@RequestBody UserBookRequest request,
+                                                                   @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                                                   @PathVariable Long userId) {
+        return CompletableFuture.supplyAsync(() -> {
+            UserBookResponse response = idempotencyService.execute(requestId, "update/" + userId, request,
+                    UserBookResponse.class, () -> userUpdateCoalescer.update(userId, request));
+            log.info("Response with updated user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksIdList().size()));
+            return response;
+        }, jdbcExecutor);
     }
 
+    /**
+     * Если If-None-Match совпадает с текущей версией пользователя, возвращается 304 без чтения книг и тела ответа.
+     * ETag берётся из версии, из которой собран ответ, поэтому устаревший ответ из кэша не закрепится у клиента.
+     * ETag свой у JSON, CBOR и Smile, а Vary: Accept не даёт кэшам отдать одно представление вместо другого.
+     */
     @GetMapping(value = "/get/{userId}")
     @Operation(summary = "Get user book row.",
             responses = {
                     @ApiResponse(description = "All user info with books",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = UserResponse.class)))})
-    public UserResponse getUserWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
-                                         @PathVariable Long userId) {
-        UserResponse response = userDataFacade.getUserWithBooks(userId);
-        log.info("Response with user and his books: {}", response);
-        return response;
+                                    schema = @Schema(implementation = UserResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "User has not changed since If-None-Match")})
+    public CompletableFuture<ResponseEntity<UserResponse>> getUserWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                            @PathVariable Long userId) {
+        MediaType representation = ETags.representation(accept);
+        return CompletableFuture.supplyAsync(() -> {
+            if (ifNoneMatch != null) {
+                String currentETag = ETags.of(userDataFacade.getUserVersion(userId), representation);
+                if (ETags.matches(ifNoneMatch, currentETag)) {
+                    log.info("User has not changed {}", kv("userId", userId));
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .cacheControl(CacheControl.noCache())
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .eTag(currentETag)
+                            .build();
+                }
+            }
+            UserResponse response = userDataFacade.getUserWithBooks(userId);
+            log.info("Response with user and his books {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksList().size()));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .eTag(ETags.of(response.getVersion(), representation))
+                    .contentType(representation)
+                    .body(response);
+        }, jdbcExecutor);
+    }
+
+    @GetMapping(value = "/get")
+    @Operation(summary = "Get user book rows by user ids.",
+            responses = {
+                    @ApiResponse(description = "Users with books by user id and ids of users not found",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBatchResponse.class)))})
+    public CompletableFuture<UserBatchResponse> getUsersWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                                                  @RequestParam List<Long> userIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            UserBatchResponse response = userDataFacade.getUsersWithBooks(userIds);
+            log.info("Response with users and their books {} {}", kv("userCount", response.getUsers().size()),
+                    kv("notFound", response.getNotFoundUserIds().size()));
+            return response;
+        }, jdbcExecutor);
+    }
+
+    @GetMapping(value = "/get/{userId}/books")
+    @Operation(summary = "Get user books page by cursor.",
+            responses = {
+                    @ApiResponse(description = "User books page with cursor of the next page",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookPageResponse.class)))})
+    public CompletableFuture<UserBookPageResponse> getUserBooksPage(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                                                    @PathVariable Long userId,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = DEFAULT_BOOK_PAGE_SIZE) int size) {
+        return CompletableFuture.supplyAsync(() -> {
+            UserBookPageResponse response = userDataFacade.getUserBooksPage(userId, cursor, size);
+            log.info("Response with user books page {} {}", kv("userId", response.getUserId()),
+                    kv("bookCount", response.getBooksList().size()));
+            return response;
+        }, jdbcExecutor);
     }
 
     @DeleteMapping(value = "/delete/{userId}")
     @Operation(summary = "Delete user book row.")
-    public void deleteUserWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
-                                    @PathVariable Long userId) {
-        log.info("Delete user and his books:  userId {}", userId);
-        userDataFacade.deleteUserWithBooks(userId);
+    public CompletableFuture<Void> deleteUserWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                                       @PathVariable Long userId) {
+        log.info("Delete user and his books {}", kv("userId", userId));
+        return CompletableFuture.runAsync(() -> idempotencyService.execute(requestId, "delete/" + userId, null,
+                Void.class, () -> {
+                    userDataFacade.deleteUserWithBooks(userId);
+                    return null;
+                }), jdbcExecutor);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users with books from NDJSON stream, one UserBookRequest per line.",
+            responses = {
+                    @ApiResponse(description = "Report line per imported chunk",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = BulkImportChunkReport.class)))})
+    public void importUsersWithBooksFromNdjson(InputStream body,
+                                               @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                               HttpServletResponse response) throws IOException {
+        importUsersWithBooks(UserBookRequestReader.ndjson(body, objectMapper), response);
+    }
+
+    @PostMapping(value = "/import", consumes = WebConstant.TEXT_CSV_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users with books from CSV stream, one book per line.",
+            responses = {
+                    @ApiResponse(description = "Report line per imported chunk",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = BulkImportChunkReport.class)))})
+    public void importUsersWithBooksFromCsv(InputStream body,
+                                            @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                            HttpServletResponse response) throws IOException {
+        importUsersWithBooks(UserBookRequestReader.csv(body), response);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all users with books as NDJSON, one user per line.",
+            responses = {
+                    @ApiResponse(description = "User with books per line",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserResponse.class)))})
+    public void exportUsersWithBooks(@RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId,
+                                     HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        long userCount = userDataFacade.exportUsersWithBooks(response.getOutputStream());
+        log.info("Export finished {}", kv("userCount", userCount));
+    }
+
+    /**
+     * Импорт и выгрузка пишут ответ потоком по мере чтения БД и выполняются в потоке запроса, а не в jdbcExecutor:
+     * они долгие и заняли бы пул, рассчитанный на короткие запросы.
+     * Отчёт по каждой порции пишется и отправляется клиенту сразу после её загрузки.
+     */
+    private void importUsersWithBooks(UserBookRequestReader reader, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        try (reader) {
+            userDataFacade.importUsersWithBooks(reader, report -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(report));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                } catch (IOException exc) {
+                    throw new UncheckedIOException(exc);
+                }
+            });
+        }
+        log.info("Bulk import finished");
     }
 }
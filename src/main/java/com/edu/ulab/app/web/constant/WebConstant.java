@@ -7,4 +7,9 @@ public class WebConstant {
     public static final String VERSION_URL = "/api/v1";
     public static final String RQID = "rqid";
     public static final String REQUEST_ID_PATTERN = "^[A-Za-z0-9_-]*$";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String DEFAULT_BOOK_PAGE_SIZE = "100";
+    public static final int MAX_BOOK_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_USER_IDS = 100;
 }
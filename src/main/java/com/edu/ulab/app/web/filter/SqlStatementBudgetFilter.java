@@ -0,0 +1,132 @@
+package com.edu.ulab.app.web.filter;
+
+import com.edu.ulab.app.config.SqlStatementBudgetProperties;
+import com.edu.ulab.app.sql.SqlStatementStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.QueryType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.edu.ulab.app.logging.LogMarkers.SAMPLED;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Считает SQL-запросы каждого HTTP-запроса и сообщает о запросах, превысивших бюджет endpoint'а
+ * или повторивших один и тот же запрос не меньше repeated-statement-threshold раз (N+1).
+ * Для асинхронных обработчиков проверка выполняется по завершении запроса, когда работа в jdbcExecutor закончена.
+ */
+@Slf4j
+public class SqlStatementBudgetFilter extends OncePerRequestFilter {
+    private static final String BUDGET_EXCEEDED = "budget";
+    private static final String REPEATED_STATEMENT = "repeated";
+
+    private final SqlStatementBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementBudgetFilter(SqlStatementBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementStats stats = new SqlStatementStats();
+        SqlStatementStats previous = SqlStatementStats.bind(stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementStats.bind(previous);
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new CheckOnCompleteListener(request, stats));
+            else
+                check(request, stats);
+        }
+    }
+
+    void check(HttpServletRequest request, SqlStatementStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null)
+            return;
+        String endpoint = request.getMethod() + " " + pattern;
+        int maxStatements = properties.maxStatements(endpoint);
+        if (maxStatements < 0)
+            return;
+
+        long statements = stats.getTotal();
+        DistributionSummary.builder("sql.request.statements")
+                .description("SQL statements executed per HTTP request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(statements);
+
+        boolean overBudget = statements > maxStatements;
+        Map<String, Long> repeated = stats.repeatedShapes(properties.getRepeatedStatementThreshold());
+        if (!overBudget && repeated.isEmpty())
+            return;
+        if (overBudget)
+            violations(endpoint, BUDGET_EXCEEDED).increment();
+        if (!repeated.isEmpty())
+            violations(endpoint, REPEATED_STATEMENT).increment();
+
+        log.warn(SAMPLED, "SQL statement budget violated {} {} {} {} {} {} {} {} {} {}",
+                kv("requestId", request.getHeader("rqid")),
+                kv("endpoint", endpoint),
+                kv("statements", statements),
+                kv("maxStatements", maxStatements),
+                kv("selects", stats.count(QueryType.SELECT)),
+                kv("inserts", stats.count(QueryType.INSERT)),
+                kv("updates", stats.count(QueryType.UPDATE)),
+                kv("deletes", stats.count(QueryType.DELETE)),
+                kv("repeatedStatements", repeated.keySet()),
+                kv("topStatements", stats.topShapes(properties.getLoggedStatements())));
+    }
+
+    private Counter violations(String endpoint, String reason) {
+        return Counter.builder("sql.request.budget.violations")
+                .description("HTTP requests that exceeded the SQL statement budget or repeated a statement")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private class CheckOnCompleteListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final SqlStatementStats stats;
+
+        CheckOnCompleteListener(HttpServletRequest request, SqlStatementStats stats) {
+            this.request = request;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            check(request, stats);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.edu.ulab.app.web.handler;
 
+import com.edu.ulab.app.exception.BatchSizeExceededException;
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.exception.ConcurrentUpdateException;
 import com.edu.ulab.app.exception.EmptyFieldException;
+import com.edu.ulab.app.exception.IdempotencyKeyReuseException;
+import com.edu.ulab.app.exception.InvalidCursorException;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.RequestInProgressException;
+import com.edu.ulab.app.exception.WriteBehindTimeoutException;
 import com.edu.ulab.app.web.response.BaseWebResponse;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,6 +46,79 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler(BulkImportFormatException.class)
+    public ResponseEntity<BaseWebResponse> handleBulkImportFormatException(@NonNull final BulkImportFormatException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<BaseWebResponse> handleInvalidCursorException(@NonNull final InvalidCursorException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ResponseEntity<BaseWebResponse> handleBatchSizeExceededException(@NonNull final BatchSizeExceededException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<BaseWebResponse> handleIdempotencyKeyReuseException(@NonNull final IdempotencyKeyReuseException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    /**
+     * Запрос с тем же rqid выполняется другим экземпляром: повтор после его завершения получит сохранённый ответ.
+     */
+    @ExceptionHandler(RequestInProgressException.class)
+    public ResponseEntity<BaseWebResponse> handleRequestInProgressException(@NonNull final RequestInProgressException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new BaseWebResponse(exc.getMessage()));
+    }
+
+    /**
+     * Все попытки изменения завершились конфликтом версий с параллельными изменениями того же пользователя.
+     */
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    public ResponseEntity<BaseWebResponse> handleConcurrentUpdateException(@NonNull final ConcurrentUpdateException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new BaseWebResponse(exc.getMessage()));
+    }
+
+    /**
+     * Отложенная запись не подтвердила коммит за ack-timeout: изменение могло быть записано,
+     * повтор с теми же данными безопасен, так как последнее изменение заменяет предыдущие.
+     */
+    @ExceptionHandler(WriteBehindTimeoutException.class)
+    public ResponseEntity<BaseWebResponse> handleWriteBehindTimeoutException(@NonNull final WriteBehindTimeoutException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new BaseWebResponse(exc.getMessage()));
+    }
+
+    /**
+     * Очередь jdbcExecutor или отложенной записи заполнена: запрос сбрасывается сразу, клиенту предлагается повторить позже.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<BaseWebResponse> handleTaskRejectedException(@NonNull final TaskRejectedException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new BaseWebResponse("Service is overloaded, retry later"));
+    }
+
     private String createErrorMessage(Exception exception) {
         final String message = exception.getMessage();
         log.error(ExceptionHandlerUtils.buildErrorMessage(exception));
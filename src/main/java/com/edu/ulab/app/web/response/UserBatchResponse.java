@@ -0,0 +1,14 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class UserBatchResponse {
+    private Map<Long, UserResponse> users;
+    private List<Long> notFoundUserIds;
+}
@@ -0,0 +1,15 @@
+package com.edu.ulab.app.web.response;
+
+import com.edu.ulab.app.dto.BookDto;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserBookPageResponse {
+    private Long userId;
+    private List<BookDto> booksList;
+    private String nextCursor;
+}
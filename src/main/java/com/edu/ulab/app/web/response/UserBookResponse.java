@@ -2,11 +2,13 @@ package com.edu.ulab.app.web.response;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 @Data
 @Builder
+@Jacksonized
 public class UserBookResponse {
     private Long userId;
     private List<Long> booksIdList;
@@ -1,6 +1,7 @@
 package com.edu.ulab.app.web.response;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
 
@@ -14,4 +15,10 @@ public class UserResponse {
     private String title;
     private int age;
     private List<BookDto> booksList;
+
+    /**
+     * Версия пользователя, из которой собран ответ; отдаётся в заголовке ETag, а не в теле.
+     */
+    @JsonIgnore
+    private long version;
 }
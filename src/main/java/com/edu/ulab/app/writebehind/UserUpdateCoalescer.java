@@ -0,0 +1,342 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.config.WriteBehindProperties;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.EmptyFieldException;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.WriteBehindTimeoutException;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.validation.EntityValidators;
+import com.edu.ulab.app.validation.Violation;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Отложенная запись изменений пользователя с книгами. Каждый запрос проверяется при приёме теми же
+ * правилами, что и изменение без очереди, поэтому запрос с пустыми полями сразу получает 400 и ни с чем
+ * не сливается. Изменения одного userId, пришедшие за window с первого из них, сливаются: запрос
+ * задаёт пользователя и список книг целиком, так что пишется последний из них. Накопленные пользователи
+ * пишутся пачками в одной транзакции; если пачка не записалась, её пользователи пишутся по одному,
+ * а если слитое изменение пользователя не записалось из-за данных (конфликт уникальности, удалённая книга),
+ * его запросы применяются по одному в порядке поступления, чтобы ошибку получил только вызвавший её запрос;
+ * остальные ошибки (конкурентное изменение, недоступная БД) получают все его запросы без повтора.
+ * Ответ отдаётся только после коммита, в который попало изменение, поэтому подтверждённое изменение
+ * уже в БД; не дождавшийся коммита за ack-timeout запрос получает {@link WriteBehindTimeoutException}.
+ */
+@Slf4j
+public class UserUpdateCoalescer {
+    public static final String PENDING_USERS = "ulab.writebehind.pending.users";
+    public static final String PENDING_UPDATES = "ulab.writebehind.pending.updates";
+    public static final String COALESCED = "ulab.writebehind.coalesced";
+    public static final String FLUSH = "ulab.writebehind.flush";
+    public static final String BATCH_USERS = "ulab.writebehind.batch.users";
+    public static final String ACKNOWLEDGEMENT = "ulab.writebehind.ack";
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final UserDataFacade userDataFacade;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Duration ackTimeout;
+    private final int maxBatchSize;
+    private final int maxPendingUsers;
+    private final ConcurrentMap<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final DelayQueue<PendingUpdate> dueUpdates = new DelayQueue<>();
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+    private final ExecutorService flusher;
+    private volatile boolean closed;
+    private final Counter coalesced;
+    private final Timer flushed;
+    private final Timer flushFailed;
+    private final DistributionSummary batchUsers;
+    private final Timer acknowledgement;
+
+    public UserUpdateCoalescer(UserDataFacade userDataFacade,
+                               UserMapper userMapper,
+                               BookMapper bookMapper,
+                               WriteBehindProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.userDataFacade = userDataFacade;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.enabled = properties.isEnabled();
+        this.windowNanos = properties.getWindow().toNanos();
+        this.ackTimeout = properties.getAckTimeout();
+        this.maxBatchSize = Math.max(properties.getMaxBatchSize(), 1);
+        this.maxPendingUsers = properties.getMaxPendingUsers();
+        this.flusher = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flush");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        Gauge.builder(PENDING_USERS, pending, Map::size)
+                .description("Users with updates waiting for the write-behind flush")
+                .register(meterRegistry);
+        Gauge.builder(PENDING_UPDATES, pendingUpdates, AtomicInteger::get)
+                .description("Update requests waiting for the write-behind flush to commit")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(COALESCED)
+                .description("Update requests merged into an update already waiting for the same user")
+                .register(meterRegistry);
+        this.flushed = flushTimer(meterRegistry, "success");
+        this.flushFailed = flushTimer(meterRegistry, "failure");
+        this.batchUsers = DistributionSummary.builder(BATCH_USERS)
+                .description("Users written in one write-behind transaction")
+                .register(meterRegistry);
+        this.acknowledgement = Timer.builder(ACKNOWLEDGEMENT)
+                .description("Time from accepting an update request to the commit that includes it")
+                .register(meterRegistry);
+        if (flusher != null)
+            flusher.execute(this::flushDue);
+    }
+
+    /**
+     * Изменяет пользователя с книгами и ждёт коммита не дольше ack-timeout; при выключенной отложенной
+     * записи сразу вызывает фасад.
+     */
+    public UserBookResponse update(Long userId, UserBookRequest userBookRequest) {
+        if (!enabled)
+            return userDataFacade.updateUserWithBooks(userBookRequest, userId);
+        try {
+            return submit(userId, userBookRequest)
+                    .orTimeout(ackTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof TimeoutException)
+                throw new WriteBehindTimeoutException("User update was not committed in time, retry later");
+            if (exc.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw exc;
+        }
+    }
+
+    /**
+     * Проверяет запрос и ставит его в очередь; первый запрос пользователя ставит его в очередь сброса
+     * по времени, следующие до сброса добавляются к нему. Новый пользователь сверх max-pending-users
+     * не принимается.
+     */
+    CompletableFuture<UserBookResponse> submit(Long userId, UserBookRequest userBookRequest) {
+        checkOnNullAndEmptyValues(userBookRequest);
+        long acceptedAt = System.nanoTime();
+        Waiter waiter = new Waiter(userBookRequest, new CompletableFuture<>());
+        pendingUpdates.incrementAndGet();
+        try {
+            pending.compute(userId, (id, update) -> {
+                if (update == null) {
+                    if (closed)
+                        throw new TaskRejectedException("Write-behind queue is closed");
+                    if (pending.size() >= maxPendingUsers)
+                        throw new TaskRejectedException("Write-behind queue is full");
+                    update = new PendingUpdate(id, acceptedAt + windowNanos);
+                    dueUpdates.add(update);
+                } else {
+                    coalesced.increment();
+                }
+                update.waiters.add(waiter);
+                return update;
+            });
+        } catch (RuntimeException exc) {
+            pendingUpdates.decrementAndGet();
+            throw exc;
+        }
+        waiter.committed.whenComplete((response, exc) -> {
+            pendingUpdates.decrementAndGet();
+            acknowledgement.record(System.nanoTime() - acceptedAt, TimeUnit.NANOSECONDS);
+        });
+        return waiter.committed;
+    }
+
+    /**
+     * Ждёт сброса уже принятых изменений; новые изменения после остановки отклоняются.
+     */
+    public void close() throws InterruptedException {
+        if (flusher == null)
+            return;
+        closed = true;
+        flusher.shutdown();
+        if (!flusher.awaitTermination(30, TimeUnit.SECONDS))
+            log.warn("Write-behind flush did not finish before shutdown {}", kv("userCount", pending.size()));
+    }
+
+    /**
+     * Те же проверки, что у изменения без очереди: пустой пользователь или книга отклоняются до слияния,
+     * чтобы не отменить запись остальных запросов того же пользователя.
+     */
+    private void checkOnNullAndEmptyValues(UserBookRequest userBookRequest) {
+        Person user = userMapper.userRequestToPerson(userBookRequest.getUserRequest());
+        if (user == null || !EntityValidators.PERSON.isValid(user))
+            throw new EmptyFieldException("User fields cannot be equals null or empty");
+        if (userBookRequest.getBookRequests() == null)
+            throw new EmptyFieldException("Book list cannot be null");
+        List<Book> books = userBookRequest.getBookRequests()
+                .stream()
+                .filter(Objects::nonNull)
+                .map(bookMapper::bookRequestToBook)
+                .toList();
+        List<Violation> violations = EntityValidators.BOOK.validateAll(books);
+        if (!violations.isEmpty())
+            throw new EmptyFieldException("Book fields cannot be equals null or empty: " + violations);
+    }
+
+    /**
+     * Забирает из очереди по времени только пользователей с истёкшим окном, не больше max-batch-size
+     * за транзакцию. После остановки работает, пока не запишет всё принятое.
+     */
+    private void flushDue() {
+        while (!closed || !pending.isEmpty()) {
+            try {
+                PendingUpdate first = dueUpdates.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                List<PendingUpdate> due = new ArrayList<>();
+                due.add(first);
+                dueUpdates.drainTo(due, maxBatchSize - 1);
+                due.forEach(update -> pending.remove(update.userId, update));
+                flush(due);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException exc) {
+                log.error("Write-behind flush failed {}", kv("error", exc.getMessage()), exc);
+            }
+        }
+    }
+
+    private void flush(List<PendingUpdate> batch) {
+        Map<Long, UserBookRequest> requests = new LinkedHashMap<>();
+        batch.forEach(update -> requests.put(update.userId, update.latestRequest()));
+        try {
+            Map<Long, UserBookResponse> responses = write(requests);
+            log.info("Flushed coalesced user updates {} {}", kv("userCount", batch.size()),
+                    kv("updateCount", batch.stream().mapToInt(update -> update.waiters.size()).sum()));
+            batch.forEach(update -> update.complete(responses.get(update.userId)));
+        } catch (RuntimeException exc) {
+            if (batch.size() == 1) {
+                flushRequests(batch.get(0), exc);
+            } else {
+                log.warn("Coalesced batch failed, flushing users one by one {} {}", kv("userCount", batch.size()),
+                        kv("error", exc.getMessage()));
+                batch.forEach(update -> flush(List.of(update)));
+            }
+        }
+    }
+
+    /**
+     * Слитое изменение пользователя не записалось. Если ошибка зависит от данных запроса, его запросы
+     * применяются по одному в порядке поступления, каждый получает свой результат, а в БД остаётся последний
+     * записавшийся. Иначе повтор упадёт так же, поэтому ошибку сразу получают все запросы.
+     */
+    private void flushRequests(PendingUpdate update, RuntimeException exc) {
+        log.warn("Coalesced user update failed {} {} {}", kv("userId", update.userId),
+                kv("updateCount", update.waiters.size()), kv("error", exc.getMessage()));
+        if (update.waiters.size() == 1 || !dependsOnRequest(exc)) {
+            update.fail(exc);
+            return;
+        }
+        for (Waiter waiter : update.waiters) {
+            try {
+                waiter.committed.complete(write(Map.of(update.userId, waiter.request)).get(update.userId));
+            } catch (RuntimeException requestExc) {
+                waiter.committed.completeExceptionally(requestExc);
+            }
+        }
+    }
+
+    private static boolean dependsOnRequest(RuntimeException exc) {
+        return exc instanceof NotUniqueException || exc instanceof NotFoundException;
+    }
+
+    private Map<Long, UserBookResponse> write(Map<Long, UserBookRequest> requests) {
+        long startedAt = System.nanoTime();
+        try {
+            Map<Long, UserBookResponse> responses = userDataFacade.updateUsersWithBooks(requests);
+            flushed.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            batchUsers.record(requests.size());
+            return responses;
+        } catch (RuntimeException exc) {
+            flushFailed.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            throw exc;
+        }
+    }
+
+    private static Timer flushTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder(FLUSH)
+                .description("Write-behind transaction time")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Waiter(UserBookRequest request, CompletableFuture<UserBookResponse> committed) {
+    }
+
+    /**
+     * Изменяется только внутри compute по своему userId, поэтому после удаления из очереди не меняется.
+     * Упорядочено по моменту, когда истекает окно.
+     */
+    private static final class PendingUpdate implements Delayed {
+        private final Long userId;
+        private final long dueAt;
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        private PendingUpdate(Long userId, long dueAt) {
+            this.userId = userId;
+            this.dueAt = dueAt;
+        }
+
+        private UserBookRequest latestRequest() {
+            return waiters.get(waiters.size() - 1).request;
+        }
+
+        private void complete(UserBookResponse response) {
+            waiters.forEach(waiter -> waiter.committed.complete(response));
+        }
+
+        private void fail(RuntimeException exc) {
+            waiters.forEach(waiter -> waiter.committed.completeExceptionally(exc));
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((PendingUpdate) other).dueAt);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+alter table ulab_edu.book
+    alter column person_id type bigint;
+
+create index idx_ulab_edu_book_person_id on ulab_edu.book (person_id);
+
+alter table ulab_edu.book
+    drop constraint if exists fkptqutw8pd04ie5sx4rqygnmvg;
+
+alter table ulab_edu.book
+    add constraint fk_ulab_edu_book_person_id foreign key (person_id) references ulab_edu.person (id);
+
+comment on index ulab_edu.idx_ulab_edu_book_person_id is 'Поиск и удаление книг пользователя';
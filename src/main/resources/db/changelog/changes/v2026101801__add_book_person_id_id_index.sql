@@ -0,0 +1,5 @@
+create index idx_ulab_edu_book_person_id_id on ulab_edu.book (person_id, id);
+
+drop index ulab_edu.idx_ulab_edu_book_person_id;
+
+comment on index ulab_edu.idx_ulab_edu_book_person_id_id is 'Поиск, удаление и постраничная выборка книг пользователя по (person_id, id)';
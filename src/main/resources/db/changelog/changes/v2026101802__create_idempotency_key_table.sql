@@ -0,0 +1,18 @@
+create table ulab_edu.idempotency_key
+(
+    request_id  varchar(255) not null,
+    fingerprint varchar(64)  not null,
+    completed   boolean      not null,
+    response    text,
+    expires_at  timestamptz  not null,
+    constraint pk_ulab_edu_idempotency_key_request_id primary key (request_id)
+);
+
+create index idx_ulab_edu_idempotency_key_expires_at on ulab_edu.idempotency_key (expires_at);
+
+comment on table ulab_edu.idempotency_key is 'Ключи идемпотентности (rqid) и сохранённые ответы на повтор запроса';
+comment on column ulab_edu.idempotency_key.request_id is 'Значение заголовка rqid';
+comment on column ulab_edu.idempotency_key.fingerprint is 'SHA-256 операции и тела запроса';
+comment on column ulab_edu.idempotency_key.completed is 'Запрос выполнен, ответ сохранён';
+comment on column ulab_edu.idempotency_key.response is 'Ответ в JSON';
+comment on column ulab_edu.idempotency_key.expires_at is 'Срок захвата ключа или хранения ответа';
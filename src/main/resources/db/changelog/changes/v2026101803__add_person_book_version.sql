@@ -0,0 +1,7 @@
+alter table ulab_edu.person add column version bigint not null default 0;
+
+alter table ulab_edu.book add column version bigint not null default 0;
+
+comment on column ulab_edu.person.version is 'Версия пользователя для оптимистической блокировки; увеличивается при любом изменении пользователя или его книг';
+
+comment on column ulab_edu.book.version is 'Версия книги для оптимистической блокировки';
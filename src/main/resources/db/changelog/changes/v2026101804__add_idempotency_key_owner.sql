@@ -0,0 +1,3 @@
+alter table ulab_edu.idempotency_key add column owner_token varchar(36);
+
+comment on column ulab_edu.idempotency_key.owner_token is 'Токен выполнения, захватившего ключ; ответ записывает и ключ освобождает только оно';
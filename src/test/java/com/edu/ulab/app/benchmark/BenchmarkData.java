@@ -0,0 +1,96 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import lombok.experimental.UtilityClass;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Тестовые данные бенчмарков.
+ */
+@UtilityClass
+class BenchmarkData {
+
+    UserBookRequest userBookRequest(String title, int bookCount) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("benchmark user");
+        userRequest.setTitle(title);
+        userRequest.setAge(30);
+
+        UserBookRequest userBookRequest = new UserBookRequest();
+        userBookRequest.setUserRequest(userRequest);
+        userBookRequest.setBookRequests(bookRequests(bookCount, 100));
+        return userBookRequest;
+    }
+
+    List<BookRequest> bookRequests(int bookCount, long pageCount) {
+        return IntStream.range(0, bookCount)
+                .mapToObj(i -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle("book title " + i);
+                    bookRequest.setAuthor("book author " + i);
+                    bookRequest.setPageCount(pageCount + i);
+                    return bookRequest;
+                })
+                .toList();
+    }
+
+    List<UserBookView> userBookViews(long userId, int bookCount) {
+        return IntStream.range(0, bookCount)
+                .<UserBookView>mapToObj(i -> new Row(userId, "benchmark user", "benchmark title", 30,
+                        (long) i, "book title " + i, "book author " + i, 100L + i))
+                .toList();
+    }
+
+    private record Row(Long userId, String fullName, String title, Integer age,
+                       Long bookId, String bookTitle, String bookAuthor, Long bookPageCount) implements UserBookView {
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public String getFullName() {
+            return fullName;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public Integer getAge() {
+            return age;
+        }
+
+        @Override
+        public Long getVersion() {
+            return 0L;
+        }
+
+        @Override
+        public Long getBookId() {
+            return bookId;
+        }
+
+        @Override
+        public String getBookTitle() {
+            return bookTitle;
+        }
+
+        @Override
+        public String getBookAuthor() {
+            return bookAuthor;
+        }
+
+        @Override
+        public Long getBookPageCount() {
+            return bookPageCount;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.edu.ulab.app.config.CacheConfig.USER_WITH_BOOKS_CACHE;
+
+/**
+ * Полные сценарии {@link UserDataFacade} на PostgreSQL.
+ * По умолчанию БД поднимается в Testcontainers; существующую БД можно передать через
+ * -Dbenchmark.datasource.url=jdbc:postgresql://host:port/db (и .username/.password).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FacadeBenchmark {
+    private static final AtomicLong TITLE_SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
+    @Param({"1", "100", "10000"})
+    int bookCount;
+
+    PostgreSQLContainer<?> postgres;
+    ConfigurableApplicationContext context;
+    UserDataFacade userDataFacade;
+    Cache userWithBooksCache;
+
+    Long userId;
+    UserBookRequest updateRequest;
+    UserBookRequest changedUpdateRequest;
+    boolean changed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("benchmark.datasource.url");
+        String username = System.getProperty("benchmark.datasource.username", "postgres");
+        String password = System.getProperty("benchmark.datasource.password", "postgres");
+        if (url == null) {
+            postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:13-alpine"));
+            postgres.start();
+            url = postgres.getJdbcUrl();
+            username = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+
+        context = new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton(TestConfigurationExcludeFilter.class.getName(), new TestConfigurationExcludeFilter()))
+                .run("--spring.datasource.url=" + url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true",
+                        "--spring.datasource.username=" + username,
+                        "--spring.datasource.password=" + password,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        userDataFacade = context.getBean(UserDataFacade.class);
+        userWithBooksCache = context.getBean(CacheManager.class).getCache(USER_WITH_BOOKS_CACHE);
+
+        userId = userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(nextTitle(), bookCount)).getUserId();
+        updateRequest = BenchmarkData.userBookRequest(nextTitle(), bookCount);
+        changedUpdateRequest = BenchmarkData.userBookRequest(updateRequest.getUserRequest().getTitle(), bookCount);
+        changedUpdateRequest.getBookRequests().get(0).setPageCount(1);
+        userDataFacade.updateUserWithBooks(updateRequest, userId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        if (postgres != null)
+            postgres.stop();
+    }
+
+    @Benchmark
+    public UserBookResponse createUserWithBooks() {
+        return userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(nextTitle(), bookCount));
+    }
+
+    @Benchmark
+    public UserResponse getUserWithBooksCached() {
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    @Benchmark
+    public UserResponse getUserWithBooksUncached() {
+        userWithBooksCache.evict(userId);
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    /**
+     * Каждый вызов меняет pageCount одной книги туда и обратно.
+     */
+    @Benchmark
+    public UserBookResponse updateOneBook() {
+        changed = !changed;
+        return userDataFacade.updateUserWithBooks(changed ? changedUpdateRequest : updateRequest, userId);
+    }
+
+    @Benchmark
+    public void deleteUserWithBooks(DeletionState deletionState) {
+        userDataFacade.deleteUserWithBooks(deletionState.userId);
+    }
+
+    @State(Scope.Thread)
+    public static class DeletionState {
+        Long userId;
+
+        @Setup(Level.Invocation)
+        public void createUser(FacadeBenchmark benchmark) {
+            userId = benchmark.userDataFacade
+                    .createUserWithBooks(BenchmarkData.userBookRequest(nextTitle(), benchmark.bookCount))
+                    .getUserId();
+        }
+    }
+
+    /**
+     * Вне тестового контекста сканирование подхватило бы тестовые @TestConfiguration
+     * (например, конфигурацию с Testcontainers), поэтому исключаем их явно.
+     */
+    static class TestConfigurationExcludeFilter extends TypeExcludeFilter {
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+        }
+    }
+
+    private static String nextTitle() {
+        return "benchmark " + TITLE_SEQUENCE.incrementAndGet();
+    }
+}
@@ -0,0 +1,88 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования {@link BookMapper} и {@link UserMapper} для пакета книг.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final BookMapper bookMapper = new BookMapperImpl();
+    private final UserMapper userMapper = new UserMapperImpl();
+
+    @Param({"1", "100", "10000"})
+    int bookCount;
+
+    UserRequest userRequest;
+    List<BookRequest> bookRequests;
+    List<BookDto> bookDtos;
+    List<Book> books;
+    List<UserBookView> userBookViews;
+
+    @Setup
+    public void setUp() {
+        Person person = new Person();
+        person.setId(1L);
+
+        userRequest = BenchmarkData.userBookRequest("benchmark title", 0).getUserRequest();
+        bookRequests = BenchmarkData.bookRequests(bookCount, 100);
+        bookDtos = bookRequests.stream()
+                .map(bookMapper::bookRequestToBookDto)
+                .toList();
+        books = bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .peek(book -> book.setPerson(person))
+                .toList();
+        userBookViews = BenchmarkData.userBookViews(1L, bookCount);
+    }
+
+    @Benchmark
+    public Object userRequestToPerson() {
+        return userMapper.userDtoToPerson(userMapper.userRequestToUserDto(userRequest));
+    }
+
+    @Benchmark
+    public List<BookDto> bookRequestToBookDto() {
+        return bookRequests.stream()
+                .map(bookMapper::bookRequestToBookDto)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Book> bookDtoToBook() {
+        return bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .toList();
+    }
+
+    @Benchmark
+    public List<BookDto> bookToBookDto() {
+        return books.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    @Benchmark
+    public UserResponse userBookViewsToUserResponse() {
+        return userMapper.userBookViewsToUserResponse(userBookViews);
+    }
+}
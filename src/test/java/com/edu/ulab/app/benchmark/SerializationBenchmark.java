@@ -0,0 +1,95 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.web.response.UserResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сериализация {@link UserResponse} в JSON (с Blackbird и без), CBOR и Smile.
+ * Размер тела ответа в байтах попадает в результат бенчмарка вторичной метрикой serialize:bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int bookCount;
+
+    @Param({"json-reflection", "json", "cbor", "smile"})
+    String format;
+
+    ObjectWriter writer;
+    UserResponse userResponse;
+
+    /**
+     * Размер ответа в байтах. JMH суммирует EVENTS-счётчик по измерительным итерациям, поэтому каждая итерация
+     * сообщает свою долю размера и в результате остаётся размер одного ответа.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public double bytes;
+        private int iterations;
+
+        @Setup
+        public void setUp(BenchmarkParams benchmarkParams) {
+            iterations = benchmarkParams.getMeasurement().getCount();
+        }
+    }
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        switch (format) {
+            case "json-reflection" -> { }
+            case "json" -> builder.modulesToInstall(new BlackbirdModule());
+            case "cbor" -> builder.factory(new CBORFactory()).modulesToInstall(new BlackbirdModule());
+            case "smile" -> builder.factory(new SmileFactory()).modulesToInstall(new BlackbirdModule());
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+        ObjectMapper objectMapper = builder.build();
+        writer = objectMapper.writerFor(UserResponse.class);
+
+        List<BookDto> books = IntStream.range(0, bookCount)
+                .mapToObj(i -> {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setId(1_000_000L + i);
+                    bookDto.setUserId(1L);
+                    bookDto.setTitle("book title " + i);
+                    bookDto.setAuthor("book author " + i);
+                    bookDto.setPageCount(100L + i);
+                    return bookDto;
+                })
+                .toList();
+        userResponse = UserResponse.builder()
+                .userId(1L)
+                .fullName("benchmark user")
+                .title("benchmark title")
+                .age(30)
+                .booksList(books)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serialize(PayloadSize payloadSize) throws JsonProcessingException {
+        byte[] payload = writer.writeValueAsBytes(userResponse);
+        payloadSize.bytes = (double) payload.length / payloadSize.iterations;
+        return payload;
+    }
+}
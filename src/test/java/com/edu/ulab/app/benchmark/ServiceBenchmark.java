@@ -0,0 +1,103 @@
+package com.edu.ulab.app.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Маппинг и проверка полей в {@link UserServiceImpl} и {@link BookServiceImpl}
+ * без обращения к БД: репозитории заменены заглушками, возвращающими переданные сущности.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    private final BookMapper bookMapper = new BookMapperImpl();
+    private final UserMapper userMapper = new UserMapperImpl();
+
+    @Param({"1", "100", "10000"})
+    int bookCount;
+
+    UserServiceImpl userService;
+    BookServiceImpl bookService;
+    UserDto userDto;
+    List<BookDto> bookDtos;
+
+    @Setup
+    public void setUp() {
+        // без Spring logback остаётся на DEBUG, и бенчмарк мерил бы вывод в консоль
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        Person person = new Person();
+        person.setId(1L);
+
+        bookDtos = BenchmarkData.bookRequests(bookCount, 100)
+                .stream()
+                .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setUserId(person.getId()))
+                .toList();
+        List<Book> currentBooks = bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .peek(book -> book.setPerson(person))
+                .toList();
+        userDto = userMapper.userRequestToUserDto(BenchmarkData.userBookRequest("benchmark title", 0).getUserRequest());
+
+        UserRepository userRepository = stub(UserRepository.class, Map.of(
+                "findById", args -> Optional.of(person),
+                "saveAndFlush", args -> args[0]));
+        BookRepository bookRepository = stub(BookRepository.class, Map.of(
+                "findAllByPersonId", args -> currentBooks,
+                "saveAll", args -> args[0],
+                "deleteAllByPersonIdAndIdIn", args -> 0));
+        userService = new UserServiceImpl(userRepository, userMapper);
+        bookService = new BookServiceImpl(bookRepository, userRepository, bookMapper);
+    }
+
+    @Benchmark
+    public UserDto createUser() {
+        return userService.createUser(userDto);
+    }
+
+    @Benchmark
+    public List<BookDto> createBooks() {
+        return bookService.createBooks(1L, bookDtos);
+    }
+
+    @Benchmark
+    public List<BookDto> syncUnchangedBooks() {
+        return bookService.syncBooks(1L, bookDtos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null)
+                throw new UnsupportedOperationException(method.getName());
+            return answer.apply(args);
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.validation.EntityValidator;
+import com.edu.ulab.app.validation.Violation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сравнение проверки полей книг через String.matches (прежняя реализация сервисов)
+ * и через {@link EntityValidator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final EntityValidator<Book> BOOK_VALIDATOR = EntityValidator.<Book>builder()
+            .notBlank("title", Book::getTitle)
+            .notBlank("author", Book::getAuthor)
+            .positive("pageCount", Book::getPageCount)
+            .build();
+
+    @Param({"1", "100", "10000"})
+    int bookCount;
+
+    List<Book> books;
+
+    @Setup
+    public void setUp() {
+        books = IntStream.range(0, bookCount)
+                .mapToObj(i -> {
+                    Book book = new Book();
+                    book.setTitle("book title " + i);
+                    book.setAuthor("book author " + i);
+                    book.setPageCount(100 + i);
+                    return book;
+                })
+                .toList();
+    }
+
+    @Benchmark
+    public boolean regexMatches() {
+        boolean valid = true;
+        for (Book book : books) {
+            valid &= !(book.getTitle() == null ||
+                    book.getTitle().matches("^\s*$") ||
+                    book.getAuthor() == null ||
+                    book.getAuthor().matches("^\s*$") ||
+                    book.getPageCount() <= 0);
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public boolean validatorIsValid() {
+        boolean valid = true;
+        for (Book book : books) {
+            valid &= BOOK_VALIDATOR.isValid(book);
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public List<Violation> validatorValidateAll() {
+        return BOOK_VALIDATOR.validateAll(books);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ValidationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,109 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование потоковой выгрузки {@link UserBookExportWriter}.
+ */
+@DisplayName("Testing export writer.")
+public class UserBookExportWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserMapperImpl userMapper = new UserMapperImpl();
+    private final UserBookExportWriter writer = new UserBookExportWriter(objectMapper, userMapper);
+
+    @Test
+    @DisplayName("Одна строка на пользователя в формате UserResponse")
+    void write_OneLinePerUserTest() throws Exception {
+        //given
+        List<UserBookView> reader = List.of(
+                new Row(1L, "reader", 2L, "first book"),
+                new Row(1L, "reader", 3L, "second book"));
+        List<UserBookView> writerWithoutBooks = List.of(new Row(4L, "writer", null, null));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        long userCount = writer.write(Stream.concat(reader.stream(), writerWithoutBooks.stream()), outputStream);
+
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(userCount).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0])
+                .isEqualTo(objectMapper.writeValueAsString(userMapper.userBookViewsToUserResponse(reader)));
+        assertThat(lines[1])
+                .isEqualTo(objectMapper.writeValueAsString(userMapper.userBookViewsToUserResponse(writerWithoutBooks)))
+                .contains("\"booksList\":[]");
+    }
+
+    @Test
+    @DisplayName("Пустая выгрузка")
+    void write_EmptyTest() throws Exception {
+        //given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        long userCount = writer.write(Stream.empty(), outputStream);
+
+        //then
+        assertThat(userCount).isZero();
+        assertThat(outputStream.size()).isZero();
+    }
+
+    private record Row(Long userId, String title, Long bookId, String bookTitle) implements UserBookView {
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public String getFullName() {
+            return "test name";
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public Integer getAge() {
+            return 30;
+        }
+
+        @Override
+        public Long getVersion() {
+            return 0L;
+        }
+
+        @Override
+        public Long getBookId() {
+            return bookId;
+        }
+
+        @Override
+        public String getBookTitle() {
+            return bookTitle;
+        }
+
+        @Override
+        public String getBookAuthor() {
+            return bookId == null ? null : "test author";
+        }
+
+        @Override
+        public Long getBookPageCount() {
+            return bookId == null ? null : 100L;
+        }
+    }
+}
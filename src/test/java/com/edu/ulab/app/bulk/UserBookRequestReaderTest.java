@@ -0,0 +1,121 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Тестирование потокового чтения {@link UserBookRequestReader}.
+ */
+@DisplayName("Testing bulk import readers.")
+public class UserBookRequestReaderTest {
+
+    @Test
+    @DisplayName("CSV: строки одного пользователя собираются в один запрос")
+    void csv_GroupsBooksByUserTest() throws Exception {
+        //given
+        InputStream input = stream("""
+                title,fullName,age,bookTitle,bookAuthor,bookPageCount
+                reader,Test Name,30,First,"Author, Jr",100
+                reader,Test Name,30,Second,Author,200
+                writer,Other Name,40,,,
+                """);
+
+        //when
+        List<UserBookRequest> requests = readAll(UserBookRequestReader.csv(input));
+
+        //then
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).getUserRequest().getTitle()).isEqualTo("reader");
+        assertThat(requests.get(0).getUserRequest().getAge()).isEqualTo(30);
+        assertThat(requests.get(0).getBookRequests())
+                .extracting("title", "author", "pageCount")
+                .containsExactly(
+                        tuple("First", "Author, Jr", 100L),
+                        tuple("Second", "Author", 200L));
+        assertThat(requests.get(1).getUserRequest().getFullName()).isEqualTo("Other Name");
+        assertThat(requests.get(1).getBookRequests()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("CSV: без обязательных колонок")
+    void csv_FailOnHeaderTest() {
+        //given
+        InputStream input = stream("title,fullName\nreader,Test Name\n");
+
+        //then
+        assertThatThrownBy(() -> UserBookRequestReader.csv(input))
+                .isInstanceOf(BulkImportFormatException.class)
+                .hasMessageContaining("CSV header must contain columns");
+    }
+
+    @Test
+    @DisplayName("CSV: нечисловое значение")
+    void csv_FailOnNumberTest() {
+        //given
+        UserBookRequestReader reader = UserBookRequestReader.csv(stream("""
+                fullName,title,age,bookTitle,bookAuthor,bookPageCount
+                Test Name,reader,thirty,,,
+                """));
+
+        //then
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(BulkImportFormatException.class)
+                .hasMessage("Column age is not a number in CSV row 1");
+    }
+
+    @Test
+    @DisplayName("NDJSON: один запрос на строку")
+    void ndjson_ReadTest() throws Exception {
+        //given
+        InputStream input = stream("""
+                {"userRequest":{"fullName":"Test Name","title":"reader","age":30},"bookRequests":[{"title":"First","author":"Author","pageCount":100}]}
+                {"userRequest":{"fullName":"Other Name","title":"writer","age":40},"bookRequests":[]}
+                """);
+
+        //when
+        List<UserBookRequest> requests = readAll(UserBookRequestReader.ndjson(input, new ObjectMapper()));
+
+        //then
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).getBookRequests()).hasSize(1);
+        assertThat(requests.get(1).getUserRequest().getTitle()).isEqualTo("writer");
+    }
+
+    @Test
+    @DisplayName("NDJSON: некорректная строка")
+    void ndjson_FailOnMalformedRecordTest() {
+        //given
+        UserBookRequestReader reader = UserBookRequestReader.ndjson(stream("{\"userRequest\":\n{broken\n"),
+                new ObjectMapper());
+
+        //then
+        assertThatThrownBy(() -> readAll(reader))
+                .isInstanceOf(BulkImportFormatException.class)
+                .hasMessageStartingWith("Malformed NDJSON record");
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<UserBookRequest> readAll(UserBookRequestReader reader) throws Exception {
+        List<UserBookRequest> requests = new ArrayList<>();
+        try (reader) {
+            reader.forEachRemaining(requests::add);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,86 @@
+package com.edu.ulab.app.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование регионов {@link HibernateCacheConfig#hibernateCacheManager}.
+ */
+@DisplayName("Testing hibernate cache regions.")
+public class HibernateCacheConfigTest {
+
+    @Test
+    @DisplayName("Регионы получают свои настройки или default-region, отметки обновления не ограничены")
+    void hibernateCacheManager_Test() {
+        //given
+        HibernateCacheProperties properties = new HibernateCacheProperties();
+        HibernateCacheProperties.Region bookRegion = new HibernateCacheProperties.Region();
+        bookRegion.setMaximumSize(100L);
+        bookRegion.setExpireAfterWrite(Duration.ofSeconds(1));
+        properties.setRegions(Map.of(HibernateCacheConfig.BOOK_REGION, bookRegion));
+
+        //when
+        try (CacheManager cacheManager = new HibernateCacheConfig().hibernateCacheManager(properties)) {
+
+            //then
+            CaffeineConfiguration<?, ?> book = configuration(cacheManager, HibernateCacheConfig.BOOK_REGION);
+            CaffeineConfiguration<?, ?> person = configuration(cacheManager, HibernateCacheConfig.PERSON_REGION);
+            CaffeineConfiguration<?, ?> timestamps = configuration(cacheManager,
+                    RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+            assertThat(book.getMaximumSize()).isEqualTo(OptionalLong.of(100));
+            assertThat(book.getExpireAfterWrite()).isEqualTo(OptionalLong.of(Duration.ofSeconds(1).toNanos()));
+            assertThat(person.getMaximumSize()).isEqualTo(OptionalLong.of(10_000));
+            assertThat(person.isStatisticsEnabled()).isTrue();
+            assertThat(timestamps.getMaximumSize()).isEmpty();
+            assertThat(timestamps.getExpireAfterWrite()).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Поле, не заданное у региона, берётся из default-region, а не из умолчаний класса")
+    void hibernateCacheManager_PartialRegionTest() {
+        //given
+        HibernateCacheProperties properties = new HibernateCacheProperties();
+        properties.setDefaultRegion(HibernateCacheProperties.Region.of(500L, Duration.ofMinutes(3)));
+        properties.setRegions(Map.of(HibernateCacheConfig.BOOK_REGION, HibernateCacheProperties.Region.of(100L, null)));
+
+        //when
+        try (CacheManager cacheManager = new HibernateCacheConfig().hibernateCacheManager(properties)) {
+
+            //then
+            CaffeineConfiguration<?, ?> book = configuration(cacheManager, HibernateCacheConfig.BOOK_REGION);
+            assertThat(book.getMaximumSize()).isEqualTo(OptionalLong.of(100));
+            assertThat(book.getExpireAfterWrite()).isEqualTo(OptionalLong.of(Duration.ofMinutes(3).toNanos()));
+        }
+    }
+
+    @Test
+    @DisplayName("Два менеджера кэша в одной JVM создаются независимо")
+    void hibernateCacheManager_TwoContextsTest() {
+        //given
+        HibernateCacheProperties properties = new HibernateCacheProperties();
+
+        //when
+        try (CacheManager first = new HibernateCacheConfig().hibernateCacheManager(properties);
+             CacheManager second = new HibernateCacheConfig().hibernateCacheManager(properties)) {
+
+            //then
+            assertThat(first).isNotSameAs(second);
+            assertThat(second.getCache(HibernateCacheConfig.PERSON_REGION)).isNotNull();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CaffeineConfiguration<?, ?> configuration(CacheManager cacheManager, String region) {
+        return cacheManager.getCache(region).getConfiguration(CaffeineConfiguration.class);
+    }
+}
@@ -0,0 +1,55 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.web.response.UserResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование бинарных конвертеров {@link JacksonConfig}.
+ */
+@DisplayName("Testing binary response converters.")
+public class JacksonConfigTest {
+    private final JacksonConfig jacksonConfig = new JacksonConfig();
+
+    @Test
+    @DisplayName("Ответ в CBOR и Smile читается обратно с теми же полями и без версии")
+    void cborAndSmileConverters_Test() throws Exception {
+        //given
+        UserResponse userResponse = UserResponse.builder()
+                .userId(1L)
+                .fullName("test name")
+                .title("test title")
+                .age(11)
+                .version(3L)
+                .booksList(List.of())
+                .build();
+
+        //when
+        List<AbstractJackson2HttpMessageConverter> converters = List.of(
+                jacksonConfig.cborHttpMessageConverter(builder()),
+                jacksonConfig.smileHttpMessageConverter(builder()));
+
+        //then
+        for (AbstractJackson2HttpMessageConverter converter : converters) {
+            ObjectMapper objectMapper = converter.getObjectMapper();
+            JsonNode result = objectMapper.readTree(objectMapper.writeValueAsBytes(userResponse));
+            assertThat(objectMapper.getRegisteredModuleIds()).contains(new BlackbirdModule().getTypeId());
+            assertThat(result.get("userId").asLong()).isEqualTo(1L);
+            assertThat(result.get("title").asText()).isEqualTo("test title");
+            assertThat(result.has("version")).isFalse();
+        }
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().modulesToInstall(jacksonConfig.blackbirdModule());
+    }
+}
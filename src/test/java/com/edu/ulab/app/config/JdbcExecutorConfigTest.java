@@ -0,0 +1,97 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.sql.SqlStatementStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование пула {@link JdbcExecutorConfig#jdbcExecutor}.
+ */
+@DisplayName("Testing jdbc executor.")
+public class JdbcExecutorConfigTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        JdbcExecutorConfig config = new JdbcExecutorConfig();
+        ReflectionTestUtils.setField(config, "connectionPoolSize", 1);
+        ReflectionTestUtils.setField(config, "queueCapacity", 1);
+        executor = config.jdbcExecutor(meterRegistry);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        MDC.clear();
+        SqlStatementStats.bind(null);
+    }
+
+    @Test
+    @DisplayName("requestId из MDC и счётчики SQL доступны в потоке пула и не переходят в следующую задачу")
+    void execute_PropagatesMdcTest() throws Exception {
+        //given
+        MDC.put("requestId", "rq-1");
+        SqlStatementStats stats = new SqlStatementStats();
+        SqlStatementStats.bind(stats);
+
+        //when
+        String requestId = CompletableFuture.supplyAsync(() -> MDC.get("requestId"), executor)
+                .get(5, TimeUnit.SECONDS);
+        CompletableFuture.runAsync(() -> SqlStatementStats.current().record("select 1"), executor)
+                .get(5, TimeUnit.SECONDS);
+        SqlStatementStats.bind(null);
+        SqlStatementStats statsWithoutContext = CompletableFuture.supplyAsync(SqlStatementStats::current, executor)
+                .get(5, TimeUnit.SECONDS);
+        String requestIdWithoutContext = CompletableFuture.supplyAsync(() -> {
+            MDC.clear();
+            return executor.getThreadPoolExecutor().submit(() -> MDC.get("requestId"));
+        }).get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(requestId).isEqualTo("rq-1");
+        assertThat(requestIdWithoutContext).isNull();
+        assertThat(stats.getTotal()).isEqualTo(1);
+        assertThat(statsWithoutContext).isNull();
+        assertThat(meterRegistry.get("jdbc.executor.queue.wait").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("При заполненной очереди задача отклоняется сразу")
+    void execute_RejectsWhenQueueIsFullTest() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> awaitQuietly(release));
+        executor.execute(() -> awaitQuietly(release));
+
+        //then
+        assertThatThrownBy(() -> executor.execute(() -> {
+        })).isInstanceOf(TaskRejectedException.class);
+        assertThat(meterRegistry.get("jdbc.executor.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
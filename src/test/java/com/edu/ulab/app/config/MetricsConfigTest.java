@@ -0,0 +1,43 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тестирование таймеров {@link MetricsConfig#timedAspect} на сервисах.
+ */
+@DisplayName("Testing service timers.")
+public class MetricsConfigTest {
+
+    @Test
+    @DisplayName("Вызов метода сервиса записывается в таймер с тегами class и method")
+    void timedService_Test() {
+        //given
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new BookServiceImpl(
+                mock(BookRepository.class), mock(UserRepository.class), mock(BookMapper.class)));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new MetricsConfig().timedAspect(meterRegistry));
+        BookServiceImpl bookService = proxyFactory.getProxy();
+
+        //when
+        bookService.getAllBooksByUserId(1L);
+
+        //then
+        assertThat(meterRegistry.get(MetricsConfig.SERVICE_TIMER)
+                .tag("class", BookServiceImpl.class.getName())
+                .tag("method", "getAllBooksByUserId")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.exception.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.edu.ulab.app.retry.OptimisticRetryMetricsListener.CONFLICTS;
+import static com.edu.ulab.app.retry.OptimisticRetryMetricsListener.EXHAUSTED;
+import static com.edu.ulab.app.retry.OptimisticRetryMetricsListener.RETRIES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование повторов {@link OptimisticRetryConfig#optimisticRetryTemplate} при конфликте версий.
+ */
+@DisplayName("Testing optimistic lock retries.")
+public class OptimisticRetryConfigTest {
+    private MeterRegistry meterRegistry;
+    private RetryTemplate retryTemplate;
+
+    @BeforeEach
+    void setUp() {
+        OptimisticRetryProperties properties = new OptimisticRetryProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialInterval(Duration.ofMillis(1));
+        properties.setMaxInterval(Duration.ofMillis(2));
+        meterRegistry = new SimpleMeterRegistry();
+        retryTemplate = new OptimisticRetryConfig().optimisticRetryTemplate(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Конфликт версий повторяется до успешной попытки")
+    void retryUntilSuccess_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        String result = retryTemplate.execute(context -> {
+            if (attempts.incrementAndGet() < 3)
+                throw new ObjectOptimisticLockingFailureException("Person", 1L);
+            return "updated";
+        });
+
+        //then
+        assertThat(result).isEqualTo("updated");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get(CONFLICTS).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(RETRIES).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(EXHAUSTED).counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("После последней попытки конфликт пробрасывается и учитывается как исчерпание")
+    void retryExhausted_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        //then
+        assertThatThrownBy(() -> retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Person", 1L);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get(CONFLICTS).counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get(RETRIES).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(EXHAUSTED).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Другие ошибки не повторяются")
+    void noRetryOnOtherException_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        //then
+        assertThatThrownBy(() -> retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            throw new NotFoundException("User was not found.");
+        })).isInstanceOf(NotFoundException.class);
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.get(CONFLICTS).counter().count()).isZero();
+        assertThat(meterRegistry.get(RETRIES).counter().count()).isZero();
+    }
+}
@@ -23,7 +23,7 @@ public class PostgreSqlContainerConfig {
     private static final String USERNAME = "postgres";
     private static final String PASSWORD = "postgres";
     private static final String POSTGRESQL_DRIVER_CLASS_NAME = "org.postgresql.Driver";
-    private static final String JDBC_URL_FORMAT = "jdbc:postgresql://%s:%s/%s";
+    private static final String JDBC_URL_FORMAT = "jdbc:postgresql://%s:%s/%s?reWriteBatchedInserts=true";
 
     private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
             DockerImageName.parse(IMAGE_VERSION).asCompatibleSubstituteFor("postgres"))
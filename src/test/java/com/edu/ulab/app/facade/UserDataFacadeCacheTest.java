@@ -0,0 +1,187 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.bulk.UserBookExportWriter;
+import com.edu.ulab.app.config.CacheConfig;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import com.edu.ulab.app.routing.ReadYourWrites;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BulkImportServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.edu.ulab.app.config.CacheConfig.USER_WITH_BOOKS_CACHE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование кэша userWithBooks в {@link UserDataFacade}: попадания, вытеснение при изменении
+ * и удалении, пропуск значений, прочитанных в окне read-your-writes.
+ */
+@SpringJUnitConfig(UserDataFacadeCacheTest.CacheTestConfig.class)
+@TestPropertySource(properties = "spring.cache.caffeine.spec=maximumSize=100")
+@DisplayName("Testing user with books cache.")
+public class UserDataFacadeCacheTest {
+    private static final Long USER_ID = 1L;
+
+    @Autowired
+    UserDataFacade userDataFacade;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    UserServiceImpl userService;
+
+    @MockBean
+    BookServiceImpl bookService;
+
+    @MockBean
+    BulkImportServiceImpl bulkImportService;
+
+    @MockBean
+    UserBookExportWriter userBookExportWriter;
+
+    @MockBean
+    TransactionTemplate transactionTemplate;
+
+    @MockBean
+    ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void setUp() {
+        cache().clear();
+        UserBookView view = view();
+        when(userService.getUserWithBooksById(USER_ID)).thenReturn(List.of(view));
+        when(readYourWrites.read(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(readYourWrites.readAll(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("Повторное чтение пользователя берётся из кэша")
+    void getUserWithBooks_CacheHitTest() {
+        //when
+        UserResponse first = userDataFacade.getUserWithBooks(USER_ID);
+        UserResponse second = userDataFacade.getUserWithBooks(USER_ID);
+
+        //then
+        assertThat(second).isEqualTo(first);
+        assertThat(cache().get(USER_ID, UserResponse.class)).isEqualTo(first);
+        verify(userService, times(1)).getUserWithBooksById(USER_ID);
+    }
+
+    @Test
+    @DisplayName("Изменение пользователя вытесняет его из кэша")
+    void updateUserWithBooks_EvictsTest() {
+        //given
+        userDataFacade.getUserWithBooks(USER_ID);
+        UserDto updatedUser = new UserDto();
+        updatedUser.setId(USER_ID);
+        when(userService.updateUser(any())).thenReturn(updatedUser);
+        when(bookService.syncBooks(USER_ID, List.of())).thenReturn(List.of());
+
+        //when
+        userDataFacade.updateUserWithBooks(request(), USER_ID);
+
+        //then
+        assertThat(cache().get(USER_ID)).isNull();
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя вытесняет его из кэша")
+    void deleteUserWithBooks_EvictsTest() {
+        //given
+        userDataFacade.getUserWithBooks(USER_ID);
+
+        //when
+        userDataFacade.deleteUserWithBooks(USER_ID);
+
+        //then
+        assertThat(cache().get(USER_ID)).isNull();
+    }
+
+    @Test
+    @DisplayName("Прочитанный в окне read-your-writes пользователь не остаётся в кэше")
+    void getUserWithBooks_RecentlyWrittenNotCachedTest() {
+        //given
+        when(readYourWrites.isRecentlyWritten(USER_ID)).thenReturn(true);
+
+        //when
+        userDataFacade.getUserWithBooks(USER_ID);
+        userDataFacade.getUsersWithBooks(List.of(USER_ID));
+
+        //then
+        assertThat(cache().get(USER_ID)).isNull();
+        verify(userService, times(1)).getUserWithBooksById(USER_ID);
+        verify(userService, times(1)).getUsersWithBooksByIds(List.of(USER_ID));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(USER_WITH_BOOKS_CACHE);
+    }
+
+    private static UserBookRequest request() {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Name");
+        userRequest.setTitle("reader");
+        userRequest.setAge(20);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of());
+        return request;
+    }
+
+    private static UserBookView view() {
+        UserBookView view = mock(UserBookView.class);
+        when(view.getUserId()).thenReturn(USER_ID);
+        when(view.getFullName()).thenReturn("Name");
+        when(view.getTitle()).thenReturn("reader");
+        when(view.getAge()).thenReturn(20);
+        when(view.getVersion()).thenReturn(0L);
+        return view;
+    }
+
+    @Configuration
+    @Import({CacheConfig.class, UserDataFacade.class, UserMapperImpl.class, BookMapperImpl.class})
+    static class CacheTestConfig {
+
+        @Bean
+        RetryTemplate optimisticRetryTemplate() {
+            return new RetryTemplate();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.edu.ulab.app.grpc;
+
+import com.edu.ulab.app.grpc.v1.UserBookServiceGrpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.Status;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование {@link BoundedCallExecutorSupplier}.
+ */
+@DisplayName("Testing bounded gRPC call executor.")
+public class BoundedCallExecutorSupplierTest {
+
+    @Test
+    @DisplayName("Задача вызова выполняется в переданном пуле")
+    void getExecutor_RunsInPoolTest() {
+        //given
+        AtomicBoolean executed = new AtomicBoolean();
+        ServerCall<?, ?> call = mock(ServerCall.class);
+        Executor executor = new BoundedCallExecutorSupplier(Runnable::run).getExecutor(call, new Metadata());
+
+        //when
+        executor.execute(() -> executed.set(true));
+
+        //then
+        assertThat(executed).isTrue();
+        verify(call, never()).close(any(), any());
+    }
+
+    @Test
+    @DisplayName("Отклонённый пулом вызов закрывается со статусом UNAVAILABLE")
+    void getExecutor_RejectedCallClosedTest() {
+        //given
+        ServerCall<?, ?> call = mock(ServerCall.class);
+        doReturn(UserBookServiceGrpc.getGetUserWithBooksMethod()).when(call).getMethodDescriptor();
+        Executor rejecting = task -> {
+            throw new TaskRejectedException("Jdbc executor queue is full");
+        };
+        Executor executor = new BoundedCallExecutorSupplier(rejecting).getExecutor(call, new Metadata());
+
+        //when
+        executor.execute(() -> {
+        });
+
+        //then
+        ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+        verify(call).close(status.capture(), any(Metadata.class));
+        assertThat(status.getValue().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+    }
+}
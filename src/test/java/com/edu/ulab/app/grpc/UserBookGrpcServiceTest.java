@@ -0,0 +1,215 @@
+package com.edu.ulab.app.grpc;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.grpc.v1.Book;
+import com.edu.ulab.app.grpc.v1.BookInput;
+import com.edu.ulab.app.grpc.v1.CreateUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.GetUserWithBooksRequest;
+import com.edu.ulab.app.grpc.v1.ListUserBooksRequest;
+import com.edu.ulab.app.grpc.v1.User;
+import com.edu.ulab.app.grpc.v1.UserBookReply;
+import com.edu.ulab.app.grpc.v1.UserBookServiceGrpc;
+import com.edu.ulab.app.mapper.UserBookGrpcMapperImpl;
+import com.edu.ulab.app.service.IdempotencyService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookPageResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.writebehind.UserUpdateCoalescer;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import net.devh.boot.grpc.server.autoconfigure.GrpcAdviceAutoConfiguration;
+import net.devh.boot.grpc.server.autoconfigure.GrpcServerAutoConfiguration;
+import net.devh.boot.grpc.server.autoconfigure.GrpcServerFactoryAutoConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование {@link UserBookGrpcService} через in-process сервер gRPC с замоканным фасадом.
+ */
+@SpringBootTest(classes = UserBookGrpcServiceTest.GrpcTestConfig.class, properties = {
+        "grpc.server.in-process-name=" + UserBookGrpcServiceTest.SERVER_NAME,
+        "grpc.server.port=-1"})
+@DisplayName("Testing user book gRPC service.")
+public class UserBookGrpcServiceTest {
+    static final String SERVER_NAME = "user-book-grpc-test";
+
+    @MockBean
+    UserDataFacade userDataFacade;
+
+    @MockBean
+    IdempotencyService idempotencyService;
+
+    @MockBean
+    UserUpdateCoalescer userUpdateCoalescer;
+
+    ManagedChannel channel;
+    UserBookServiceGrpc.UserBookServiceBlockingStub stub;
+
+    @BeforeEach
+    void setUp() {
+        channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+        stub = UserBookServiceGrpc.newBlockingStub(channel);
+        when(idempotencyService.execute(anyString(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(4).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Создание пользователя с книгами идёт через фасад с тем же запросом и rqid")
+    void createUserWithBooks_Test() {
+        //given
+        CreateUserWithBooksRequest request = CreateUserWithBooksRequest.newBuilder()
+                .setRequestId("rq-1")
+                .setUser(User.newBuilder().setFullName("test name").setTitle("test title").setAge(11))
+                .addBooks(BookInput.newBuilder().setTitle("Mummy").setAuthor("Aaron").setPageCount(500))
+                .build();
+
+        //when
+        when(userDataFacade.createUserWithBooks(any(UserBookRequest.class)))
+                .thenReturn(UserBookResponse.builder().userId(1L).booksIdList(List.of(2L)).build());
+        UserBookReply reply = stub.createUserWithBooks(request);
+
+        //then
+        assertThat(reply.getUserId()).isEqualTo(1L);
+        assertThat(reply.getBookIdsList()).containsExactly(2L);
+        verify(idempotencyService).execute(eq("rq-1"), eq("create"), any(UserBookRequest.class),
+                eq(UserBookResponse.class), any());
+    }
+
+    @Test
+    @DisplayName("Исключения фасада переводятся в статусы gRPC")
+    void exceptionToStatus_Test() {
+        //given
+        GetUserWithBooksRequest request = GetUserWithBooksRequest.newBuilder().setUserId(1L).build();
+
+        //when
+        when(userDataFacade.getUserWithBooks(1L)).thenThrow(new NotFoundException("User was not found."));
+
+        //then
+        assertThatThrownBy(() -> stub.getUserWithBooks(request))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, exc -> {
+                    assertThat(exc.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+                    assertThat(exc.getStatus().getDescription()).isEqualTo("User was not found.");
+                });
+        assertThatThrownBy(() -> stub.createUserWithBooks(CreateUserWithBooksRequest.getDefaultInstance()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, exc ->
+                        assertThat(exc.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+    }
+
+    @Test
+    @DisplayName("Книги пользователя отдаются потоком по страницам курсора")
+    void listUserBooks_Test() {
+        //given
+        ListUserBooksRequest request = ListUserBooksRequest.newBuilder().setUserId(1L).setPageSize(2).build();
+
+        //when
+        when(userDataFacade.getUserBooksPage(eq(1L), isNull(), eq(2)))
+                .thenReturn(booksPage(List.of(1L, 2L), "next"));
+        when(userDataFacade.getUserBooksPage(1L, "next", 2))
+                .thenReturn(booksPage(List.of(3L), null));
+        List<Long> bookIds = new ArrayList<>();
+        stub.listUserBooks(request).forEachRemaining(book -> bookIds.add(book.getId()));
+
+        //then
+        assertThat(bookIds).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Пока клиент не запросил сообщения, следующая страница книг не читается")
+    void listUserBooks_FlowControlTest() throws InterruptedException {
+        //given
+        ListUserBooksRequest request = ListUserBooksRequest.newBuilder().setUserId(1L).setPageSize(1).build();
+        when(userDataFacade.getUserBooksPage(eq(1L), any(), eq(1))).thenReturn(booksPage(List.of(1L), "next"));
+        CountDownLatch received = new CountDownLatch(1);
+        AtomicReference<ClientCallStreamObserver<ListUserBooksRequest>> call = new AtomicReference<>();
+
+        //when
+        UserBookServiceGrpc.newStub(channel).listUserBooks(request, new ClientResponseObserver<ListUserBooksRequest, Book>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<ListUserBooksRequest> requestStream) {
+                requestStream.disableAutoRequestWithInitial(1);
+                call.set(requestStream);
+            }
+
+            @Override
+            public void onNext(Book book) {
+                received.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(200);
+
+        //then
+        verify(userDataFacade, atMost(2)).getUserBooksPage(eq(1L), any(), eq(1));
+        call.get().cancel("test finished", null);
+    }
+
+    private static UserBookPageResponse booksPage(List<Long> bookIds, String nextCursor) {
+        List<BookDto> books = bookIds.stream()
+                .map(bookId -> {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setId(bookId);
+                    bookDto.setUserId(1L);
+                    bookDto.setTitle("title " + bookId);
+                    bookDto.setAuthor("author");
+                    bookDto.setPageCount(100);
+                    return bookDto;
+                })
+                .toList();
+        return UserBookPageResponse.builder()
+                .userId(1L)
+                .booksList(books)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({GrpcServerAutoConfiguration.class, GrpcServerFactoryAutoConfiguration.class,
+            GrpcAdviceAutoConfiguration.class})
+    @Import({UserBookGrpcService.class, GrpcExceptionAdvice.class, UserBookGrpcMapperImpl.class})
+    static class GrpcTestConfig {
+    }
+}
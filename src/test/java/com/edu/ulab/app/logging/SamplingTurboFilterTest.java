@@ -0,0 +1,75 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MarkerFactory;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование прореживания логов {@link SamplingTurboFilter}.
+ */
+@DisplayName("Testing sampled log filter.")
+public class SamplingTurboFilterTest {
+    private static final String BOOK_FORMAT = "Mapped book {}";
+    private static final String USER_FORMAT = "Mapped user {}";
+
+    private final Logger logger = new LoggerContext().getLogger("sampling-test");
+
+    @Test
+    @DisplayName("У каждого шаблона свой счётчик: частое сообщение не вытесняет редкое")
+    void decide_CountsPerCallSiteTest() {
+        //given
+        SamplingTurboFilter filter = filter("INFO", 3);
+
+        //when
+        List<FilterReply> books = IntStream.range(0, 6)
+                .mapToObj(i -> decide(filter, Level.INFO, BOOK_FORMAT))
+                .toList();
+        FilterReply firstUser = decide(filter, Level.INFO, USER_FORMAT);
+        FilterReply secondUser = decide(filter, Level.INFO, USER_FORMAT);
+
+        //then
+        assertThat(books).containsExactly(FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY,
+                FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY);
+        assertThat(firstUser).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(secondUser).isEqualTo(FilterReply.DENY);
+    }
+
+    @Test
+    @DisplayName("Сообщения без маркера SAMPLED или другого уровня не прореживаются")
+    void decide_IgnoresOtherMessagesTest() {
+        //given
+        SamplingTurboFilter filter = filter("INFO", 2);
+
+        //when
+        //then
+        assertThat(IntStream.range(0, 4)
+                .mapToObj(i -> filter.decide(null, logger, Level.INFO, BOOK_FORMAT, null, null)))
+                .containsOnly(FilterReply.NEUTRAL);
+        assertThat(IntStream.range(0, 4)
+                .mapToObj(i -> filter.decide(MarkerFactory.getMarker("OTHER"), logger, Level.INFO, BOOK_FORMAT, null, null)))
+                .containsOnly(FilterReply.NEUTRAL);
+        assertThat(IntStream.range(0, 4)
+                .mapToObj(i -> decide(filter, Level.WARN, BOOK_FORMAT)))
+                .containsOnly(FilterReply.NEUTRAL);
+    }
+
+    private FilterReply decide(SamplingTurboFilter filter, Level level, String format) {
+        return filter.decide(LogMarkers.SAMPLED, logger, level, format, new Object[]{"value"}, null);
+    }
+
+    private static SamplingTurboFilter filter(String level, long rate) {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setLevel(level);
+        filter.setRate(rate);
+        return filter;
+    }
+}
@@ -0,0 +1,45 @@
+package com.edu.ulab.app.pagination;
+
+import com.edu.ulab.app.exception.InvalidCursorException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование курсора постраничной выборки {@link BookCursor}.
+ */
+@DisplayName("Testing book cursor.")
+public class BookCursorTest {
+
+    @Test
+    @DisplayName("Курсор декодируется в id последней книги")
+    void encodeDecode_Test() {
+        //given
+        String cursor = BookCursor.encode(1001L, 3003L);
+
+        //then
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        assertThat(BookCursor.decode(cursor, 1001L)).isEqualTo(3003L);
+        assertThat(BookCursor.decode(null, 1001L)).isEqualTo(BookCursor.FIRST_PAGE_AFTER_ID);
+    }
+
+    @Test
+    @DisplayName("Курсор другого пользователя и повреждённый курсор")
+    void decode_FailTest() {
+        //given
+        String cursor = BookCursor.encode(1001L, 3003L);
+
+        //then
+        assertThatThrownBy(() -> BookCursor.decode(cursor, 1002L))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Cursor belongs to another user");
+        assertThatThrownBy(() -> BookCursor.decode("not a cursor", 1001L))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Cursor is malformed");
+        assertThatThrownBy(() -> BookCursor.decode(cursor.substring(2), 1001L))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Cursor is malformed");
+    }
+}
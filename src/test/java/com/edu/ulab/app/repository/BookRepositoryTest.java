@@ -13,6 +13,7 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -66,6 +67,41 @@ public class BookRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Сохранить список книг пакетной вставкой")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void saveAllBooks_thenAssertDmlCount() {
+        //Given
+        //person (1001, 'default uer', 'reader', 55);
+        Person person = userRepository.findById(1001L).get();
+
+        List<Book> books = IntStream.range(0, 10)
+                .mapToObj(i -> {
+                    Book book = new Book();
+                    book.setAuthor("Test Author");
+                    book.setTitle("test " + i);
+                    book.setPageCount(100 + i);
+                    book.setPerson(person);
+                    return book;
+                })
+                .toList();
+        SQLStatementCountValidator.reset();
+
+        //When
+        List<Book> result = bookRepository.saveAll(books);
+        bookRepository.flush();
+
+        //Then
+        assertThat(result).hasSize(10);
+        assertInsertCount(1);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
     // update
     @DisplayName("Обновить книгу")
     @Test
@@ -203,17 +239,81 @@ public class BookRepositoryTest {
         //user (1001, 'default uer', 'reader', 55)
 
         //When
-        bookRepository.deleteAllByPersonId(1001L);
+        int deletedCount = bookRepository.deleteAllByPersonId(1001L);
 
         //Then
-        assertSelectCount(1);
+        assertThat(deletedCount).isEqualTo(2);
+        assertSelectCount(0);
         assertInsertCount(0);
         assertUpdateCount(0);
-        assertDeleteCount(0);
+        assertDeleteCount(1);
+    }
+
+    @DisplayName("Удаление книг пользователя по списку id одним запросом")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deleteAllByPersonIdAndIdIn_thenAssertDmlCount() {
+        //Given
+        //user (1001, 'default uer', 'reader', 55), books 2002 и 3003
+
+        //When
+        int deletedCount = bookRepository.deleteAllByPersonIdAndIdIn(1001L, List.of(2002L, 9999L));
+
+        //Then
+        assertThat(deletedCount).isEqualTo(1);
+        assertThat(bookRepository.findById(3003L)).isPresent();
+        assertDeleteCount(1);
+    }
+
+    @DisplayName("Книги другого пользователя по списку id не удаляются")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deleteAllByPersonIdAndIdIn_otherUser_thenNothingDeleted() {
+        //When
+        int deletedCount = bookRepository.deleteAllByPersonIdAndIdIn(-1L, List.of(2002L, 3003L));
+
+        //Then
+        assertThat(deletedCount).isZero();
     }
 
     // * failed
 
 
     // example failed test
+
+    @DisplayName("Получить страницу книг юзера после курсора")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findPageByPersonId_thenAssertDmlCount() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+        //book (2002, 1001, 'default book', 'author', 5500)
+        //book (3003, 1001, 'more default book', 'on more author', 6655)
+
+        //When
+        List<Book> firstPage = bookRepository.findPageByPersonId(1001L, 0L, PageRequest.ofSize(1));
+        List<Book> secondPage = bookRepository.findPageByPersonId(1001L, firstPage.get(0).getId(), PageRequest.ofSize(1));
+        List<Book> lastPage = bookRepository.findPageByPersonId(1001L, secondPage.get(0).getId(), PageRequest.ofSize(1));
+
+        //Then
+        assertThat(firstPage).extracting(Book::getId).containsExactly(2002L);
+        assertThat(secondPage).extracting(Book::getId).containsExactly(3003L);
+        assertThat(lastPage).isEmpty();
+        assertSelectCount(3);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
 }
@@ -0,0 +1,109 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookView;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты репозитория {@link BulkLoadRepository}.
+ */
+@SystemJpaTest
+public class BulkLoadRepositoryTest {
+    @Autowired
+    BulkLoadRepository bulkLoadRepository;
+    @Autowired
+    UserRepository userRepository;
+
+    @DisplayName("Загрузить юзера и книги через COPY")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void copyPersonsAndBooks_thenFindUserWithBooks() {
+        //Given
+        long[] ids = bulkLoadRepository.allocateIds(3);
+        Person person = person(ids[0], "bulk reader");
+        Book book = book(ids[1], person, "first bulk book");
+        Book otherBook = book(ids[2], person, "second bulk book");
+
+        //When
+        bulkLoadRepository.copyPersons(List.of(person));
+        bulkLoadRepository.copyBooks(List.of(book, otherBook));
+        List<UserBookView> result = userRepository.findUserWithBooksById(ids[0]);
+
+        //Then
+        assertThat(result).extracting(UserBookView::getBookTitle)
+                .containsExactly("first bulk book", "second bulk book");
+        assertThat(result.get(0).getTitle()).isEqualTo("bulk reader");
+        assertThat(bulkLoadRepository.findExistingTitles(Set.of("reader", "bulk reader", "missing")))
+                .containsExactlyInAnyOrder("reader", "bulk reader");
+    }
+
+    @DisplayName("Идентификаторы не пересекаются с выданными Hibernate")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql"})
+    void allocateIds_thenNoOverlapWithSave() {
+        //Given
+        Person saved = userRepository.saveAndFlush(person(null, "saved reader"));
+
+        //When
+        long[] ids = bulkLoadRepository.allocateIds(250);
+
+        //Then
+        assertThat(Arrays.stream(ids).distinct().count()).isEqualTo(250);
+        assertThat(ids).doesNotContain(saved.getId());
+    }
+
+    @DisplayName("Ошибка COPY на неуникальном title")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql"
+    })
+    void copyPersons_FailOnUniqueTitle() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+        Person person = person(bulkLoadRepository.allocateIds(1)[0], "reader");
+
+        //Then
+        assertThatThrownBy(() -> bulkLoadRepository.copyPersons(List.of(person)))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("idx_ulab_edu_person_title");
+    }
+
+    private static Person person(Long id, String title) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Bulk Name");
+        person.setTitle(title);
+        person.setAge(33);
+        return person;
+    }
+
+    private static Book book(long id, Person person, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setPerson(person);
+        book.setTitle(title);
+        book.setAuthor("Bulk, Author");
+        book.setPageCount(120);
+        return book;
+    }
+}
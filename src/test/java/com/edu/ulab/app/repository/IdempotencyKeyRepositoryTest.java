@@ -0,0 +1,105 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.idempotency.IdempotencyRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты репозитория {@link IdempotencyKeyRepository}.
+ */
+@SystemJpaTest
+@TestPropertySource(properties = "idempotency.store=jdbc")
+public class IdempotencyKeyRepositoryTest {
+    @Autowired
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DisplayName("Захватить ключ, сохранить ответ и не дать захватить ключ повторно")
+    @Test
+    @Rollback
+    void tryStartAndComplete_thenFindResponse() {
+        //When
+        boolean started = idempotencyKeyRepository.tryStart("rq-1", "fingerprint", "owner-1", Duration.ofSeconds(30));
+        boolean startedAgain = idempotencyKeyRepository.tryStart("rq-1", "fingerprint", "owner-1", Duration.ofSeconds(30));
+        idempotencyKeyRepository.complete("rq-1", "owner-1", "{\"userId\":1}", Duration.ofHours(1));
+
+        //Then
+        assertThat(started).isTrue();
+        assertThat(startedAgain).isFalse();
+        assertThat(idempotencyKeyRepository.find("rq-1"))
+                .contains(new IdempotencyRecord("fingerprint", true, "{\"userId\":1}"));
+    }
+
+    @DisplayName("Освобождённый или истёкший ключ захватывается заново")
+    @Test
+    @Rollback
+    void releaseAndExpire_thenStartAgain() {
+        //Given
+        idempotencyKeyRepository.tryStart("rq-1", "fingerprint", "owner-1", Duration.ofSeconds(30));
+        idempotencyKeyRepository.tryStart("rq-2", "fingerprint", "owner-2", Duration.ZERO);
+
+        //When
+        idempotencyKeyRepository.release("rq-1", "owner-1");
+
+        //Then
+        assertThat(idempotencyKeyRepository.find("rq-1")).isEmpty();
+        assertThat(idempotencyKeyRepository.find("rq-2")).isEmpty();
+        assertThat(idempotencyKeyRepository.tryStart("rq-1", "other", "owner-3", Duration.ofSeconds(30))).isTrue();
+        assertThat(idempotencyKeyRepository.tryStart("rq-2", "other", "owner-4", Duration.ofSeconds(30))).isTrue();
+        assertThat(idempotencyKeyRepository.find("rq-2")).contains(new IdempotencyRecord("other", false, null));
+    }
+
+    @DisplayName("После истечения lease прежний владелец не перезаписывает и не освобождает ключ")
+    @Test
+    @Rollback
+    void expiredLease_thenOnlyNewOwnerCompletes() {
+        //Given
+        idempotencyKeyRepository.tryStart("rq-1", "fingerprint", "owner-1", Duration.ZERO);
+        idempotencyKeyRepository.tryStart("rq-1", "fingerprint", "owner-2", Duration.ofSeconds(30));
+
+        //When
+        boolean completedByStale = idempotencyKeyRepository.complete("rq-1", "owner-1", "{\"userId\":1}",
+                Duration.ofHours(1));
+        idempotencyKeyRepository.release("rq-1", "owner-1");
+        boolean completedByOwner = idempotencyKeyRepository.complete("rq-1", "owner-2", "{\"userId\":2}",
+                Duration.ofHours(1));
+
+        //Then
+        assertThat(completedByStale).isFalse();
+        assertThat(completedByOwner).isTrue();
+        assertThat(idempotencyKeyRepository.find("rq-1"))
+                .contains(new IdempotencyRecord("fingerprint", true, "{\"userId\":2}"));
+    }
+
+    @DisplayName("Истёкшие ключи удаляются порциями, пока не удалены все")
+    @Test
+    @Rollback
+    void purgeExpired_thenDeletesAllBatches() {
+        //Given
+        int expiredKeys = IdempotencyKeyRepository.PURGE_BATCH_SIZE + 5;
+        jdbcTemplate.update("insert into ulab_edu.idempotency_key (request_id, fingerprint, completed, expires_at) " +
+                "select 'rq-' || n, 'fingerprint', true, now() - interval '1 minute' from generate_series(1, ?) n",
+                expiredKeys);
+        idempotencyKeyRepository.tryStart("rq-live", "fingerprint", "owner-1", Duration.ofSeconds(30));
+
+        //When
+        int purged = idempotencyKeyRepository.purgeExpired();
+
+        //Then
+        assertThat(purged).isGreaterThanOrEqualTo(expiredKeys);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from ulab_edu.idempotency_key where expires_at <= now()", Long.class)).isZero();
+        assertThat(idempotencyKeyRepository.find("rq-live")).isPresent();
+    }
+}
@@ -0,0 +1,275 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.entity.Book;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессионные тесты планов запросов {@link UserRepository} и {@link BookRepository}.
+ * SQL каждого метода перехватывается datasource-proxy и прогоняется через EXPLAIN (FORMAT JSON)
+ * на большом наборе данных: план не должен содержать Seq Scan, а стоимость не должна
+ * превышать базовую из query-plan/baseline.properties.
+ */
+@SystemJpaTest
+@Import(QueryPlanTest.QueryCaptureConfig.class)
+public class QueryPlanTest {
+    private static final String BASELINE = "query-plan/baseline.properties";
+    private static final double COST_TOLERANCE = 1.5;
+
+    private static final QueryCaptureListener CAPTURE_LISTENER = new QueryCaptureListener();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private Properties baseline;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        baseline = PropertiesLoaderUtils.loadProperties(new ClassPathResource(BASELINE));
+    }
+
+    @DisplayName("План UserRepository.findById")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void userFindById_thenAssertPlan() {
+        assertQueryPlan("UserRepository.findById", () -> userRepository.findById(5000L));
+    }
+
+    @DisplayName("План UserRepository.findUserWithBooksById")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void findUserWithBooksById_thenAssertPlan() {
+        assertQueryPlan("UserRepository.findUserWithBooksById", () -> userRepository.findUserWithBooksById(5000L));
+    }
+
+    @DisplayName("План UserRepository.findUsersWithBooksByIds на пачке из 20 пользователей")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void findUsersWithBooksByIds_thenAssertPlan() {
+        List<Long> userIds = LongStream.range(5000L, 5020L).boxed().toList();
+        assertQueryPlan("UserRepository.findUsersWithBooksByIds", () -> userRepository.findUsersWithBooksByIds(userIds));
+    }
+
+    @DisplayName("План UserRepository.findVersionById")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void findVersionById_thenAssertPlan() {
+        assertQueryPlan("UserRepository.findVersionById", () -> userRepository.findVersionById(5000L));
+    }
+
+    @DisplayName("План UserRepository.deletePersonById")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void deletePersonById_thenAssertPlan() {
+        bookRepository.deleteAllByPersonId(5000L);
+        assertQueryPlan("UserRepository.deletePersonById", () -> userRepository.deletePersonById(5000L));
+    }
+
+    @DisplayName("План BookRepository.findById")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void bookFindById_thenAssertPlan() {
+        assertQueryPlan("BookRepository.findById", () -> bookRepository.findById(150000L));
+    }
+
+    @DisplayName("План BookRepository.findAllByPersonId")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void findAllByPersonId_thenAssertPlan() {
+        assertQueryPlan("BookRepository.findAllByPersonId", () -> bookRepository.findAllByPersonId(5000L));
+    }
+
+    @DisplayName("План BookRepository.findPageByPersonId на глубокой странице")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void findPageByPersonId_thenAssertPlan() {
+        Long afterId = bookRepository.findAllByPersonId(5000L).get(5).getId();
+        assertQueryPlan("BookRepository.findPageByPersonId",
+                () -> bookRepository.findPageByPersonId(5000L, afterId, PageRequest.ofSize(3)));
+    }
+
+    @DisplayName("План BookRepository.deleteAllByPersonId")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void deleteAllByPersonId_thenAssertPlan() {
+        assertQueryPlan("BookRepository.deleteAllByPersonId", () -> bookRepository.deleteAllByPersonId(5000L));
+    }
+
+    @DisplayName("План BookRepository.deleteAllByPersonIdAndIdIn")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql", "classpath:sql/4_insert_large_dataset.sql"})
+    void deleteAllByPersonIdAndIdIn_thenAssertPlan() {
+        List<Long> bookIds = bookRepository.findAllByPersonId(5000L).stream().map(Book::getId).toList();
+        assertQueryPlan("BookRepository.deleteAllByPersonIdAndIdIn",
+                () -> bookRepository.deleteAllByPersonIdAndIdIn(5000L, bookIds),
+                "delete");
+    }
+
+    private void assertQueryPlan(String name, Runnable repositoryCall) {
+        assertQueryPlan(name, repositoryCall, "");
+    }
+
+    /**
+     * Выполняет вызов репозитория, перехватывает его запросы (или только запросы,
+     * начинающиеся с sqlPrefix) и проверяет план каждого из них.
+     */
+    private void assertQueryPlan(String name, Runnable repositoryCall, String sqlPrefix) {
+        CAPTURE_LISTENER.start();
+        try {
+            repositoryCall.run();
+        } finally {
+            CAPTURE_LISTENER.stop();
+        }
+
+        List<QueryInfo> queries = CAPTURE_LISTENER.captured().stream()
+                .filter(queryInfo -> queryInfo.getQuery().stripLeading().toLowerCase().startsWith(sqlPrefix))
+                .toList();
+        assertThat(queries).as("captured queries of %s", name).isNotEmpty();
+
+        double maxCost = Double.parseDouble(baseline.getProperty(name + ".max-cost"));
+        for (QueryInfo queryInfo : queries) {
+            JsonNode plan = explain(queryInfo).get(0).get("Plan");
+            List<String> seqScans = new ArrayList<>();
+            collectSeqScans(plan, seqScans);
+
+            assertThat(seqScans).as("sequential scans of %s: %s", name, queryInfo.getQuery()).isEmpty();
+            assertThat(plan.get("Total Cost").asDouble())
+                    .as("total cost of %s: %s", name, queryInfo.getQuery())
+                    .isLessThanOrEqualTo(maxCost * COST_TOLERANCE);
+        }
+    }
+
+    private JsonNode explain(QueryInfo queryInfo) {
+        List<ParameterSetOperation> parameters = queryInfo.getParametersList().isEmpty()
+                ? List.of()
+                : queryInfo.getParametersList().get(0);
+
+        String plan = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + queryInfo.getQuery());
+            for (ParameterSetOperation parameter : parameters) {
+                bindParameter(statement, parameter);
+            }
+            return statement;
+        }, resultSet -> {
+            resultSet.next();
+            return resultSet.getString(1);
+        });
+
+        try {
+            return OBJECT_MAPPER.readTree(plan);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot parse plan: " + plan, e);
+        }
+    }
+
+    private static void bindParameter(PreparedStatement statement, ParameterSetOperation parameter) throws SQLException {
+        try {
+            parameter.getMethod().invoke(statement, parameter.getArgs());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new SQLException("Cannot bind parameter " + parameter.getMethod().getName(), e);
+        }
+    }
+
+    private static void collectSeqScans(JsonNode plan, List<String> seqScans) {
+        if ("Seq Scan".equals(plan.path("Node Type").asText()))
+            seqScans.add(plan.path("Relation Name").asText());
+        for (JsonNode child : plan.path("Plans")) {
+            collectSeqScans(child, seqScans);
+        }
+    }
+
+    @TestConfiguration
+    static class QueryCaptureConfig {
+        @Bean
+        static BeanPostProcessor queryCaptureDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource))
+                        return bean;
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name("Query-Plan-Capture")
+                            .listener(CAPTURE_LISTENER)
+                            .build();
+                }
+            };
+        }
+    }
+
+    static class QueryCaptureListener implements QueryExecutionListener {
+        private final List<QueryInfo> captured = new ArrayList<>();
+        private volatile boolean capturing;
+
+        void start() {
+            captured.clear();
+            capturing = true;
+        }
+
+        void stop() {
+            capturing = false;
+        }
+
+        List<QueryInfo> captured() {
+            return List.copyOf(captured);
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (capturing)
+                captured.addAll(queryInfoList);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.edu.ulab.app.repository;
 import com.edu.ulab.app.config.SystemJpaTest;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -21,6 +26,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class UserRepositoryTest {
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
 
     @BeforeEach
     void setUp() {
@@ -105,6 +112,126 @@ public class UserRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Получить версию юзера без чтения книг")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void getPersonVersion_thenAssertDmlCount() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+
+        //When
+        Optional<Long> result = userRepository.findVersionById(1001L);
+
+        //Then
+        assertThat(result).contains(0L);
+        assertThat(userRepository.findVersionById(9999L)).isEmpty();
+        assertSelectCount(2);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Получить юзера с книгами одним запросом")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void getPersonWithBooks_thenAssertDmlCount() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+        //book (2002, 1001, 'default book', 'author', 5500)
+        //book (3003, 1001, 'more default book', 'on more author', 6655)
+
+        //When
+        List<UserBookView> result = userRepository.findUserWithBooksById(1001L);
+
+        //Then
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getFullName()).isEqualTo("default uer");
+        assertThat(result.get(0).getBookId()).isEqualTo(2002L);
+        assertThat(result.get(1).getBookTitle()).isEqualTo("more default book");
+        assertThat(result.get(1).getBookPageCount()).isEqualTo(6655L);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Получить пачку юзеров с книгами одним запросом")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void getPersonsWithBooksByIds_thenAssertDmlCount() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+        //book (2002, 1001, 'default book', 'author', 5500)
+        //book (3003, 1001, 'more default book', 'on more author', 6655)
+        Person person = new Person();
+        person.setAge(11);
+        person.setTitle("writer");
+        person.setFullName("Test Test");
+        userRepository.saveAndFlush(person);
+        SQLStatementCountValidator.reset();
+
+        //When
+        List<UserBookView> result = userRepository.findUsersWithBooksByIds(List.of(person.getId(), 1001L, 9999L));
+
+        //Then
+        assertThat(result).extracting(UserBookView::getUserId)
+                .containsExactly(1001L, 1001L, person.getId());
+        assertThat(result).extracting(UserBookView::getBookId)
+                .containsExactly(2002L, 3003L, null);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
+    @DisplayName("Выгрузить всех юзеров с книгами потоком")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void streamAllUsersWithBooks_thenAssertDmlCount() {
+        //Given
+        //user(1001, 'default uer', 'reader', 55);
+        //book (2002, 1001, 'default book', 'author', 5500)
+        //book (3003, 1001, 'more default book', 'on more author', 6655)
+        Person person = new Person();
+        person.setAge(11);
+        person.setTitle("writer");
+        person.setFullName("Test Test");
+        userRepository.saveAndFlush(person);
+        SQLStatementCountValidator.reset();
+
+        //When
+        List<UserBookView> result;
+        try (Stream<UserBookView> rows = userRepository.streamAllUsersWithBooks()) {
+            result = rows.toList();
+        }
+
+        //Then
+        assertThat(result).extracting(UserBookView::getUserId)
+                .containsExactly(1001L, 1001L, person.getId());
+        assertThat(result).extracting(UserBookView::getBookId)
+                .containsExactly(2002L, 3003L, null);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
     // delete
     @DisplayName("Удалить юзера")
     @Test
@@ -127,5 +254,31 @@ public class UserRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Удалить юзера одним запросом")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void deletePersonById_thenAssertDmlCount() {
+        //Given
+        //user (1001, 'default uer', 'reader', 55)
+        bookRepository.deleteAllByPersonId(1001L);
+        SQLStatementCountValidator.reset();
+
+        //When
+        int deletedCount = userRepository.deletePersonById(1001L);
+        int missingCount = userRepository.deletePersonById(1001L);
+
+        //Then
+        assertThat(deletedCount).isEqualTo(1);
+        assertThat(missingCount).isEqualTo(0);
+        assertSelectCount(0);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(2);
+    }
+
     // * failed
 }
@@ -0,0 +1,116 @@
+package com.edu.ulab.app.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование {@link ReplicaRoutingDataSource} и {@link ReadYourWrites}.
+ */
+@DisplayName("Testing replica routing data source.")
+public class ReplicaRoutingDataSourceTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstReplicaConnection = mock(Connection.class);
+    private final Connection secondReplicaConnection = mock(Connection.class);
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", firstReplica);
+        replicas.put("replica-1", secondReplica);
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                Duration.ofHours(1), Duration.ofSeconds(1));
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.bindTo(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        routingDataSource.close();
+    }
+
+    @Test
+    @DisplayName("Запись идёт на основную БД, чтение — по кругу на реплики")
+    void getConnection_RoutesByReadOnlyTest() throws SQLException {
+        //when
+        Connection writeConnection = routingDataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection firstRead = routingDataSource.getConnection();
+        Connection secondRead = routingDataSource.getConnection();
+
+        //then
+        assertThat(writeConnection).isSameAs(primaryConnection);
+        assertThat(firstRead).isSameAs(firstReplicaConnection);
+        assertThat(secondRead).isSameAs(secondReplicaConnection);
+    }
+
+    @Test
+    @DisplayName("Неисправная реплика исключается, без исправных реплик чтение идёт на основную БД")
+    void getConnection_FailsOverTest() throws SQLException {
+        //given
+        when(firstReplica.getConnection()).thenThrow(new SQLException("replica-0 is down"));
+        when(secondReplicaConnection.isValid(anyInt())).thenReturn(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection failedOver = routingDataSource.getConnection();
+        routingDataSource.checkReplicas();
+        Connection withoutReplicas = routingDataSource.getConnection();
+
+        //then
+        assertThat(failedOver).isSameAs(primaryConnection);
+        assertThat(withoutReplicas).isSameAs(primaryConnection);
+        assertThat(routingDataSource.replicaHealth()).containsEntry("replica-0", false).containsEntry("replica-1", false);
+        assertThat(meterRegistry.get("datasource.routing.failover").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("В окне read-your-writes чтения пользователя идут на основную БД")
+    void read_AfterWriteTest() throws SQLException {
+        //given
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        readYourWrites.recordWrite(1L);
+        Connection ownRead = readYourWrites.read(1L, this::connection);
+        Connection otherRead = readYourWrites.read(2L, this::connection);
+
+        //then
+        assertThat(ownRead).isSameAs(primaryConnection);
+        assertThat(otherRead).isSameAs(firstReplicaConnection);
+    }
+
+    private Connection connection() {
+        try {
+            return routingDataSource.getConnection();
+        } catch (SQLException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+}
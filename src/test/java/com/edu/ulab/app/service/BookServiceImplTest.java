@@ -6,6 +6,7 @@ import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.EmptyFieldException;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.pagination.BookCursor;
 import com.edu.ulab.app.repository.BookRepository;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
@@ -21,6 +22,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -92,6 +94,69 @@ public class BookServiceImplTest {
         assertEquals(1L, bookDtoResult.getId());
     }
 
+    @Test
+    @DisplayName("Создание списка книг одним пакетом")
+    void saveBooks_Test() {
+        //given
+        Person person = new Person();
+        person.setId(1L);
+
+        BookDto bookDto1 = new BookDto();
+        bookDto1.setUserId(1L);
+        bookDto1.setAuthor("test author");
+        bookDto1.setTitle("test title");
+        bookDto1.setPageCount(1000);
+
+        BookDto bookDto2 = new BookDto();
+        bookDto2.setUserId(1L);
+        bookDto2.setAuthor("Aaron");
+        bookDto2.setTitle("Mummy");
+        bookDto2.setPageCount(500);
+
+        Book book1 = new Book();
+        book1.setPageCount(1000);
+        book1.setTitle("test title");
+        book1.setAuthor("test author");
+
+        Book book2 = new Book();
+        book2.setPageCount(500);
+        book2.setTitle("Mummy");
+        book2.setAuthor("Aaron");
+
+        Book savedBook1 = new Book();
+        savedBook1.setId(1L);
+        savedBook1.setPerson(person);
+
+        Book savedBook2 = new Book();
+        savedBook2.setId(2L);
+        savedBook2.setPerson(person);
+
+        BookDto result1 = new BookDto();
+        result1.setId(1L);
+        result1.setUserId(1L);
+
+        BookDto result2 = new BookDto();
+        result2.setId(2L);
+        result2.setUserId(1L);
+
+        //when
+        when(userRepository.findById(person.getId())).thenReturn(Optional.of(person));
+        when(bookMapper.bookDtoToBook(bookDto1)).thenReturn(book1);
+        when(bookMapper.bookDtoToBook(bookDto2)).thenReturn(book2);
+        when(bookRepository.saveAll(List.of(book1, book2))).thenReturn(List.of(savedBook1, savedBook2));
+        when(bookMapper.bookToBookDto(savedBook1)).thenReturn(result1);
+        when(bookMapper.bookToBookDto(savedBook2)).thenReturn(result2);
+
+        //then
+        List<BookDto> bookDtoListResult = bookService.createBooks(1L, List.of(bookDto1, bookDto2));
+        assertEquals(1L, bookDtoListResult.get(0).getId());
+        assertEquals(2L, bookDtoListResult.get(1).getId());
+        assertEquals(person, book1.getPerson());
+        assertEquals(person, book2.getPerson());
+        verify(userRepository, times(1)).findById(1L);
+        verify(bookRepository, never()).save(any());
+    }
+
     // update
     @Test
     @DisplayName("Обновление книги") //аналогично сохранению
@@ -116,6 +181,7 @@ public class BookServiceImplTest {
 
 
         Book book = new Book();
+        book.setId(1L);
         book.setPerson(person);
         book.setTitle("Mummy");
         book.setAuthor("Aaron");
@@ -129,7 +195,7 @@ public class BookServiceImplTest {
         updatedBook.setPageCount(500);
 
         //when
-        when(bookMapper.bookDtoToBook(bookForUpdateDto)).thenReturn(book);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
         when(bookRepository.save(book)).thenReturn(updatedBook);
         when(userRepository.findById(person.getId())).thenReturn(Optional.of(person));
         when(bookMapper.bookToBookDto(updatedBook)).thenReturn(resultOfUpdate);
@@ -144,6 +210,115 @@ public class BookServiceImplTest {
         assertEquals(500, bookDtoResult.getPageCount());
     }
 
+    @Test
+    @DisplayName("Отсутствующие в запросе книги удаляются по id частями")
+    void syncBooks_DeletesInChunksTest() {
+        //given
+        Person person = new Person();
+        person.setId(1L);
+        List<Book> currentBooks = LongStream.rangeClosed(1, BookServiceImpl.DELETE_CHUNK_SIZE + 1)
+                .mapToObj(id -> {
+                    Book book = new Book();
+                    book.setId(id);
+                    book.setPerson(person);
+                    book.setTitle("title " + id);
+                    book.setAuthor("author");
+                    book.setPageCount(100);
+                    return book;
+                })
+                .toList();
+
+        //when
+        when(userRepository.findById(1L)).thenReturn(Optional.of(person));
+        when(bookRepository.findAllByPersonId(1L)).thenReturn(currentBooks);
+
+        //then
+        assertEquals(0, bookService.syncBooks(1L, List.of()).size());
+        verify(bookRepository, times(1)).deleteAllByPersonIdAndIdIn(1L,
+                LongStream.rangeClosed(1, BookServiceImpl.DELETE_CHUNK_SIZE).boxed().toList());
+        verify(bookRepository, times(1)).deleteAllByPersonIdAndIdIn(1L,
+                List.of((long) BookServiceImpl.DELETE_CHUNK_SIZE + 1));
+    }
+
+    @Test
+    @DisplayName("Синхронизация книг пользователя по title + author")
+    void syncBooks_Test() {
+        //given
+        Person person = new Person();
+        person.setId(1L);
+
+        Book unchangedBook = new Book();
+        unchangedBook.setId(10L);
+        unchangedBook.setPerson(person);
+        unchangedBook.setTitle("Mummy");
+        unchangedBook.setAuthor("Aaron");
+        unchangedBook.setPageCount(500);
+
+        Book changedBook = new Book();
+        changedBook.setId(11L);
+        changedBook.setPerson(person);
+        changedBook.setTitle("test title");
+        changedBook.setAuthor("test author");
+        changedBook.setPageCount(1000);
+
+        Book droppedBook = new Book();
+        droppedBook.setId(12L);
+        droppedBook.setPerson(person);
+        droppedBook.setTitle("old title");
+        droppedBook.setAuthor("old author");
+        droppedBook.setPageCount(300);
+
+        BookDto unchangedDto = new BookDto();
+        unchangedDto.setUserId(1L);
+        unchangedDto.setTitle("Mummy");
+        unchangedDto.setAuthor("Aaron");
+        unchangedDto.setPageCount(500);
+
+        BookDto changedDto = new BookDto();
+        changedDto.setUserId(1L);
+        changedDto.setTitle("test title");
+        changedDto.setAuthor("test author");
+        changedDto.setPageCount(1200);
+
+        BookDto newDto = new BookDto();
+        newDto.setUserId(1L);
+        newDto.setTitle("new title");
+        newDto.setAuthor("new author");
+        newDto.setPageCount(700);
+
+        Book unchangedIncoming = new Book();
+        unchangedIncoming.setTitle("Mummy");
+        unchangedIncoming.setAuthor("Aaron");
+        unchangedIncoming.setPageCount(500);
+
+        Book changedIncoming = new Book();
+        changedIncoming.setTitle("test title");
+        changedIncoming.setAuthor("test author");
+        changedIncoming.setPageCount(1200);
+
+        Book newIncoming = new Book();
+        newIncoming.setTitle("new title");
+        newIncoming.setAuthor("new author");
+        newIncoming.setPageCount(700);
+
+        //when
+        when(userRepository.findById(1L)).thenReturn(Optional.of(person));
+        when(bookRepository.findAllByPersonId(1L)).thenReturn(List.of(unchangedBook, changedBook, droppedBook));
+        when(bookMapper.bookDtoToBook(unchangedDto)).thenReturn(unchangedIncoming);
+        when(bookMapper.bookDtoToBook(changedDto)).thenReturn(changedIncoming);
+        when(bookMapper.bookDtoToBook(newDto)).thenReturn(newIncoming);
+        when(bookMapper.bookToBookDto(any())).thenReturn(new BookDto());
+
+        //then
+        List<BookDto> bookDtoListResult = bookService.syncBooks(1L, List.of(unchangedDto, changedDto, newDto));
+        assertEquals(3, bookDtoListResult.size());
+        assertEquals(500, unchangedBook.getPageCount());
+        assertEquals(1200, changedBook.getPageCount());
+        verify(bookRepository, times(1)).deleteAllByPersonIdAndIdIn(1L, List.of(droppedBook.getId()));
+        verify(bookRepository, times(1)).saveAll(List.of(newIncoming));
+        verify(bookRepository, never()).save(any());
+    }
+
     // get
     @Test
     @DisplayName("Получение книги")
@@ -240,6 +415,50 @@ public class BookServiceImplTest {
 
     }
 
+    @Test
+    @DisplayName("Получение страницы книг пользователя")
+    void getBooksPage_Test() {
+        //given
+        Long userId = 1L;
+
+        Person person = new Person();
+        person.setId(userId);
+
+        Book book = new Book();
+        book.setId(7L);
+        book.setPerson(person);
+
+        BookDto result = new BookDto();
+        result.setId(7L);
+        result.setUserId(userId);
+
+        //when
+        when(bookRepository.findPageByPersonId(userId, 5L, PageRequest.ofSize(11))).thenReturn(List.of(book));
+        when(bookMapper.bookToBookDto(book)).thenReturn(result);
+
+        //then
+        List<BookDto> bookDtoListResult = bookService.getBooksPageByUserId(userId, 5L, 11);
+        assertEquals(List.of(result), bookDtoListResult);
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Получение первой страницы книг несуществующего пользователя")
+    void getBooksPage_FailOnUserTest() {
+        //given
+        Long userId = 1L;
+
+        //when
+        when(bookRepository.findPageByPersonId(userId, BookCursor.FIRST_PAGE_AFTER_ID, PageRequest.ofSize(11)))
+                .thenReturn(List.of());
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        //then
+        assertThatThrownBy(() -> bookService.getBooksPageByUserId(userId, BookCursor.FIRST_PAGE_AFTER_ID, 11))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User was not found.");
+    }
+
     // delete
     @Test
     @DisplayName("Удаление одной книги по id")
@@ -350,6 +569,63 @@ public class BookServiceImplTest {
 
     }
 
+    @Test
+    @DisplayName("Ошибка пакетного создания - все неверно заполненные поля пакета")
+    void saveBooks_FailOnFieldsTest() {
+        //given
+        Person person = new Person();
+        person.setId(1L);
+
+        BookDto bookDto1 = new BookDto();
+        bookDto1.setUserId(1L);
+        bookDto1.setTitle("test title");
+        bookDto1.setPageCount(1000);
+
+        BookDto bookDto2 = new BookDto();
+        bookDto2.setUserId(1L);
+        bookDto2.setAuthor("test author");
+        bookDto2.setTitle("test title");
+
+        Book book1 = new Book();
+        book1.setTitle("test title");
+        book1.setPageCount(1000);
+
+        Book book2 = new Book();
+        book2.setAuthor("test author");
+        book2.setTitle("test title");
+
+        //when
+        when(userRepository.findById(1L)).thenReturn(Optional.of(person));
+        when(bookMapper.bookDtoToBook(bookDto1)).thenReturn(book1);
+        when(bookMapper.bookDtoToBook(bookDto2)).thenReturn(book2);
+
+        //then
+        assertThatThrownBy(()->bookService.createBooks(1L, List.of(bookDto1, bookDto2)))
+                .isInstanceOf(EmptyFieldException.class)
+                .hasMessage("Book fields cannot be equals null or empty: [[0].author, [1].pageCount]");
+        verify(bookRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Ошибка пакетного создания - нет пользователя в БД")
+    void saveBooks_FailOnUserTest() {
+        //given
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setTitle("Mummy");
+        bookDto.setAuthor("Aaron");
+        bookDto.setPageCount(500);
+
+        //when
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        //then
+        assertThatThrownBy(()->bookService.createBooks(1L, List.of(bookDto)))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User with such id not found");
+        verify(bookRepository, never()).saveAll(any());
+    }
+
     @Test
     @DisplayName("Ошибка получения - нет книги в БД")
     void getOneBook_FailTest() {
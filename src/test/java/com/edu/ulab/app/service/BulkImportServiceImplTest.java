@@ -0,0 +1,191 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.bulk.UserBookRequestReader;
+import com.edu.ulab.app.dto.BulkImportChunkReport;
+import com.edu.ulab.app.dto.BulkImportRejection;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.BulkImportFormatException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.BulkLoadRepository;
+import com.edu.ulab.app.service.impl.BulkImportServiceImpl;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование функционала {@link com.edu.ulab.app.service.impl.BulkImportServiceImpl}.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DisplayName("Testing bulk import functionality.")
+public class BulkImportServiceImplTest {
+    @Mock
+    BulkLoadRepository bulkLoadRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    BulkImportServiceImpl bulkImportService;
+
+    @BeforeEach
+    void setUp() {
+        bulkImportService = new BulkImportServiceImpl(bulkLoadRepository, new TransactionTemplate(transactionManager),
+                new UserMapperImpl(), new BookMapperImpl(), 2);
+        when(bulkLoadRepository.allocateIds(anyInt()))
+                .thenAnswer(invocation -> LongStream.range(0, invocation.<Integer>getArgument(0)).toArray());
+    }
+
+    @Test
+    @DisplayName("Импорт порциями, отчёт на каждую порцию")
+    void importUsersWithBooks_ChunksTest() {
+        //given
+        UserBookRequestReader reader = reader(List.of(
+                request("first", 2), request("second", 0), request("third", 1)));
+        List<BulkImportChunkReport> reports = new ArrayList<>();
+
+        //when
+        bulkImportService.importUsersWithBooks(reader, reports::add);
+
+        //then
+        assertThat(reports)
+                .extracting("chunk", "firstRecord", "receivedUsers", "importedUsers", "importedBooks")
+                .containsExactly(tuple(0, 0L, 2, 2, 2), tuple(1, 2L, 1, 1, 1));
+        verify(bulkLoadRepository, times(2)).copyPersons(anyList());
+        verify(bulkLoadRepository, times(2)).copyBooks(anyList());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Пустые поля и неуникальные title отклоняются, остальное загружается")
+    @SuppressWarnings("unchecked")
+    void importUsersWithBooks_RejectTest() {
+        //given
+        UserBookRequest invalid = request("invalid", 1);
+        invalid.getBookRequests().get(0).setAuthor(" ");
+        UserBookRequestReader reader = reader(List.of(request("existing", 1), invalid, request("valid", 1)));
+        when(bulkLoadRepository.findExistingTitles(anyCollection())).thenReturn(Set.of("existing"), Set.of());
+        List<BulkImportChunkReport> reports = new ArrayList<>();
+        ArgumentCaptor<List<Person>> persons = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Book>> books = ArgumentCaptor.forClass(List.class);
+
+        //when
+        bulkImportService.importUsersWithBooks(reader, reports::add);
+
+        //then
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0).getRejected()).containsExactly(
+                new BulkImportRejection(0, "User title is not unique"),
+                new BulkImportRejection(1, "Fields cannot be equals null or empty: bookRequests[0].author"));
+        assertThat(reports.get(0).getImportedUsers()).isZero();
+        verify(bulkLoadRepository).copyPersons(persons.capture());
+        verify(bulkLoadRepository).copyBooks(books.capture());
+        assertThat(persons.getValue()).extracting(Person::getTitle).containsExactly("valid");
+        assertThat(books.getValue().get(0).getPerson()).isSameAs(persons.getValue().get(0));
+        assertThat(books.getValue().get(0).getId()).isNotEqualTo(persons.getValue().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки порции попадает в отчёт, следующие порции загружаются")
+    void importUsersWithBooks_FailOnChunkTest() {
+        //given
+        UserBookRequestReader reader = reader(List.of(
+                request("first", 1), request("second", 1), request("third", 1)));
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .doNothing()
+                .when(bulkLoadRepository).copyPersons(anyList());
+        List<BulkImportChunkReport> reports = new ArrayList<>();
+
+        //when
+        bulkImportService.importUsersWithBooks(reader, reports::add);
+
+        //then
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0).getError()).isEqualTo("Chunk was not loaded: duplicate key");
+        assertThat(reports.get(0).getImportedUsers()).isZero();
+        assertThat(reports.get(1).getError()).isNull();
+        assertThat(reports.get(1).getImportedUsers()).isEqualTo(1);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Некорректный вход: прочитанное загружается, импорт останавливается")
+    void importUsersWithBooks_FailOnFormatTest() {
+        //given
+        UserBookRequestReader reader = mock(UserBookRequestReader.class);
+        when(reader.hasNext()).thenReturn(true).thenThrow(new BulkImportFormatException("Malformed NDJSON record"));
+        when(reader.next()).thenReturn(request("first", 1));
+        List<BulkImportChunkReport> reports = new ArrayList<>();
+
+        //when
+        bulkImportService.importUsersWithBooks(reader, reports::add);
+
+        //then
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0).getImportedUsers()).isEqualTo(1);
+        assertThat(reports.get(0).getError()).isEqualTo("Record 1: Malformed NDJSON record");
+    }
+
+    private static UserBookRequest request(String title, int bookCount) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("test name");
+        userRequest.setTitle(title);
+        userRequest.setAge(11);
+
+        List<BookRequest> bookRequests = new ArrayList<>();
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest bookRequest = new BookRequest();
+            bookRequest.setTitle("test title " + i);
+            bookRequest.setAuthor("test author");
+            bookRequest.setPageCount(100);
+            bookRequests.add(bookRequest);
+        }
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(bookRequests);
+        return request;
+    }
+
+    private static UserBookRequestReader reader(List<UserBookRequest> requests) {
+        Iterator<UserBookRequest> iterator = requests.iterator();
+        return new UserBookRequestReader() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public UserBookRequest next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
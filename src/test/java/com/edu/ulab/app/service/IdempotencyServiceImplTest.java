@@ -0,0 +1,182 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.exception.IdempotencyKeyReuseException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.RequestInProgressException;
+import com.edu.ulab.app.idempotency.IdempotencyStore;
+import com.edu.ulab.app.idempotency.InMemoryIdempotencyStore;
+import com.edu.ulab.app.service.impl.IdempotencyServiceImpl;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование функционала {@link IdempotencyServiceImpl}.
+ */
+@DisplayName("Testing idempotency functionality.")
+public class IdempotencyServiceImplTest {
+    private static final UserBookResponse RESPONSE = UserBookResponse.builder()
+            .userId(1L)
+            .booksIdList(List.of(2L, 3L))
+            .build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyServiceImpl idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(new InMemoryIdempotencyStore(100), new ObjectMapper(),
+                meterRegistry, Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Повтор с тем же rqid возвращает сохранённый ответ без повторного выполнения")
+    void execute_ReplaysResponseTest() {
+        //when
+        UserBookResponse first = execute("rq-1", "request", this::countedResponse);
+        UserBookResponse replayed = execute("rq-1", "request", this::countedResponse);
+
+        //then
+        assertThat(first).isEqualTo(RESPONSE);
+        assertThat(replayed).isEqualTo(RESPONSE);
+        assertThat(executions).hasValue(1);
+        assertThat(outcome("replayed")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Одновременный дубликат ждёт выполняющийся запрос, а не выполняет его ещё раз")
+    void execute_JoinsInFlightRequestTest() throws Exception {
+        //given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<UserBookResponse> first = CompletableFuture.supplyAsync(() -> execute("rq-1", "request", () -> {
+            started.countDown();
+            await(release);
+            return countedResponse();
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        //when
+        CompletableFuture<UserBookResponse> duplicate = CompletableFuture.supplyAsync(
+                () -> execute("rq-1", "request", this::countedResponse));
+        Thread.sleep(100);
+        release.countDown();
+
+        //then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+        assertThat(executions).hasValue(1);
+        assertThat(outcome("joined")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Дубликат ждёт выполняющийся запрос не дольше wait-timeout и получает RequestInProgressException")
+    void execute_JoinTimesOutTest() throws Exception {
+        //given
+        idempotencyService = new IdempotencyServiceImpl(new InMemoryIdempotencyStore(100), new ObjectMapper(),
+                meterRegistry, Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<UserBookResponse> first = CompletableFuture.supplyAsync(() -> execute("rq-1", "request", () -> {
+            started.countDown();
+            await(release);
+            return countedResponse();
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        //when
+        long startedAt = System.nanoTime();
+        assertThatThrownBy(() -> execute("rq-1", "request", this::countedResponse))
+                .isInstanceOf(RequestInProgressException.class);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        release.countDown();
+
+        //then
+        assertThat(waitedMillis).isLessThan(2000);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+        assertThat(executions).hasValue(1);
+        assertThat(outcome("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rqid с другим запросом отклоняется, после ошибки запрос выполняется заново")
+    void execute_RejectsReuseAndRetriesFailureTest() {
+        //given
+        execute("rq-1", "request", this::countedResponse);
+
+        //when
+        assertThatThrownBy(() -> execute("rq-1", "other request", this::countedResponse))
+                .isInstanceOf(IdempotencyKeyReuseException.class);
+        assertThatThrownBy(() -> execute("rq-2", "request", () -> {
+            throw new NotUniqueException("User title is not unique");
+        })).isInstanceOf(NotUniqueException.class);
+        UserBookResponse retried = execute("rq-2", "request", this::countedResponse);
+
+        //then
+        assertThat(retried).isEqualTo(RESPONSE);
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Без захваченного ключа действие не выполняется, даже если записи в хранилище нет")
+    void execute_DoesNotRunWithoutKeyTest() {
+        //given
+        IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+        when(idempotencyStore.find("rq-1")).thenReturn(Optional.empty());
+        when(idempotencyStore.tryStart(eq("rq-1"), anyString(), anyString(), any())).thenReturn(false);
+        idempotencyService = new IdempotencyServiceImpl(idempotencyStore, new ObjectMapper(),
+                meterRegistry, Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofSeconds(5));
+
+        //when
+        assertThatThrownBy(() -> execute("rq-1", "request", this::countedResponse))
+                .isInstanceOf(RequestInProgressException.class);
+
+        //then
+        assertThat(executions).hasValue(0);
+        assertThat(outcome("rejected")).isEqualTo(1);
+        verify(idempotencyStore, times(3)).tryStart(eq("rq-1"), anyString(), anyString(), any());
+        verify(idempotencyStore, never()).complete(anyString(), anyString(), anyString(), any());
+    }
+
+    private UserBookResponse execute(String requestId, String request, Supplier<UserBookResponse> action) {
+        return idempotencyService.execute(requestId, "create", request, UserBookResponse.class, action);
+    }
+
+    private UserBookResponse countedResponse() {
+        executions.incrementAndGet();
+        return RESPONSE;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
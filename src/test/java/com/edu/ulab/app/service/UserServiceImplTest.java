@@ -9,16 +9,21 @@ import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotUniqueException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.repository.projection.UserBookView;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -73,8 +78,7 @@ public class UserServiceImplTest {
         //when
 
         when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
-        when(userRepository.existsByTitle(person.getTitle())).thenReturn(false);
-        when(userRepository.save(person)).thenReturn(savedPerson);
+        when(userRepository.saveAndFlush(person)).thenReturn(savedPerson);
         when(userMapper.personToUserDto(savedPerson)).thenReturn(result);
 
 
@@ -91,20 +95,17 @@ public class UserServiceImplTest {
         //given
 
         UserDto userDto = new UserDto();
+        userDto.setId(1L);
         userDto.setAge(11);
         userDto.setFullName("test name");
         userDto.setTitle("test title");
 
         Person person  = new Person();
+        person.setId(1L);
         person.setFullName("test name");
         person.setAge(11);
         person.setTitle("test title");
 
-        Person existsPerson  = new Person();
-        existsPerson.setFullName("test");
-        existsPerson.setAge(12);
-        existsPerson.setTitle("test title");
-
         Person updatedPerson  = new Person();
         updatedPerson.setId(1L);
         updatedPerson.setFullName("test name");
@@ -120,10 +121,8 @@ public class UserServiceImplTest {
 
         //when
 
-        when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
-        when(userRepository.existsByTitle(person.getTitle())).thenReturn(false);
-        when(userRepository.getByTitle(person.getTitle())).thenReturn(Optional.of(existsPerson));
-        when(userRepository.save(person)).thenReturn(updatedPerson);
+        when(userRepository.findByIdForVersionIncrement(1L)).thenReturn(Optional.of(person));
+        when(userRepository.saveAndFlush(person)).thenReturn(updatedPerson);
         when(userMapper.personToUserDto(updatedPerson)).thenReturn(result);
 
 
@@ -136,6 +135,25 @@ public class UserServiceImplTest {
         assertEquals("test title", userDtoResult.getTitle());
     }
 
+    @Test
+    @DisplayName("Обновление несуществующего пользователя")
+    void updateMissingPerson_Test() {
+        //given
+
+        UserDto userDto = new UserDto();
+        userDto.setId(1L);
+
+        //when
+
+        when(userRepository.findByIdForVersionIncrement(1L)).thenReturn(Optional.empty());
+
+        //then
+
+        assertThatThrownBy(() -> userService.updateUser(userDto))
+                .isInstanceOf(NotFoundException.class);
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
     // get
     @Test
     @DisplayName("Получение пользователя")
@@ -173,6 +191,23 @@ public class UserServiceImplTest {
         assertEquals("test name", userDtoResult.getFullName());
     }
 
+    @Test
+    @DisplayName("Получение пользователя с книгами одним запросом")
+    void getPersonWithBooks_Test() {
+        //given
+        Long userId = 1L;
+        UserBookView firstRow = mock(UserBookView.class);
+        UserBookView secondRow = mock(UserBookView.class);
+
+        //when
+        when(userRepository.findUserWithBooksById(userId)).thenReturn(List.of(firstRow, secondRow));
+
+        //then
+        List<UserBookView> userBookViews = userService.getUserWithBooksById(userId);
+        assertEquals(2, userBookViews.size());
+        verify(userRepository, never()).findById(userId);
+    }
+
     // delete
     @Test
     @DisplayName("Удаление пользователя")
@@ -181,11 +216,12 @@ public class UserServiceImplTest {
         Long userId = 1L;
 
         //when
-        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.deletePersonById(userId)).thenReturn(1);
 
         //then
         userService.deleteUserById(userId);
-        verify(userRepository, times(1)).deleteById(userId);
+        verify(userRepository, times(1)).deletePersonById(userId);
+        verify(userRepository, never()).existsById(userId);
     }
 
     // * failed
@@ -257,14 +293,44 @@ public class UserServiceImplTest {
         person.setFullName("test name");
         person.setTitle("test title");
 
+        DataIntegrityViolationException titleViolation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException(), "idx_ulab_edu_person_title"));
+
         //when
         when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
-        when(userRepository.existsByTitle(person.getTitle())).thenReturn(true);
+        when(userRepository.saveAndFlush(person)).thenThrow(titleViolation);
 
         //then
         assertThatThrownBy(()->userService.createUser(userDto))
                 .isInstanceOf(NotUniqueException.class)
                 .hasMessage("User title is not unique");
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Ошибка создания - нарушение другого ограничения пробрасывается как есть")
+    void savePerson_FailOnOtherConstraintTest() {
+        //given
+        UserDto userDto = new UserDto();
+        userDto.setAge(11);
+        userDto.setFullName("test name");
+        userDto.setTitle("test title");
+
+        Person person  = new Person();
+        person.setAge(11);
+        person.setFullName("test name");
+        person.setTitle("test title");
+
+        DataIntegrityViolationException otherViolation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException(), "pk_ulab_edu_person_id"));
+
+        //when
+        when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
+        when(userRepository.saveAndFlush(person)).thenThrow(otherViolation);
+
+        //then
+        assertThatThrownBy(()->userService.createUser(userDto))
+                .isSameAs(otherViolation);
     }
 
     @Test
@@ -282,6 +348,21 @@ public class UserServiceImplTest {
                 .hasMessage("User was not found.");
     }
 
+    @Test
+    @DisplayName("Ошибка получения с книгами - нет пользователя в БД")
+    void getPersonWithBooks_FailTest() {
+        //given
+        Long userId = 1L;
+
+        //when
+        when(userRepository.findUserWithBooksById(userId)).thenReturn(List.of());
+
+        //then
+        assertThatThrownBy(()->userService.getUserWithBooksById(userId))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User was not found.");
+    }
+
     @Test
     @DisplayName("Ошибка удаления - нет пользователя в БД")
     void deletePerson_FailTest() {
@@ -289,7 +370,7 @@ public class UserServiceImplTest {
         Long userId = 1L;
 
         //when
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.deletePersonById(userId)).thenReturn(0);
 
         //then
         assertThatThrownBy(()->userService.deleteUserById(userId))
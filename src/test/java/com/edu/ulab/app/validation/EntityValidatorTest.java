@@ -0,0 +1,78 @@
+package com.edu.ulab.app.validation;
+
+import com.edu.ulab.app.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link EntityValidator}.
+ */
+@DisplayName("Testing entity validation.")
+public class EntityValidatorTest {
+    private static final EntityValidator<Book> BOOK_VALIDATOR = EntityValidator.<Book>builder()
+            .notBlank("title", Book::getTitle)
+            .notBlank("author", Book::getAuthor)
+            .positive("pageCount", Book::getPageCount)
+            .build();
+
+    @Test
+    @DisplayName("Проверка корректной сущности")
+    void validEntity_Test() {
+        //given
+        Book book = book("Mummy", "Aaron", 500);
+
+        //then
+        assertTrue(BOOK_VALIDATOR.isValid(book));
+        assertThat(BOOK_VALIDATOR.validate(book)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Пустые, пробельные и неположительные значения")
+    void invalidEntity_Test() {
+        //given
+        Book nullTitle = book(null, "Aaron", 500);
+        Book blankTitle = book(" \t\n", "Aaron", 500);
+        Book emptyAuthor = book("Mummy", "", 500);
+        Book zeroPages = book("Mummy", "Aaron", 0);
+
+        //then
+        assertFalse(BOOK_VALIDATOR.isValid(nullTitle));
+        assertFalse(BOOK_VALIDATOR.isValid(blankTitle));
+        assertFalse(BOOK_VALIDATOR.isValid(emptyAuthor));
+        assertFalse(BOOK_VALIDATOR.isValid(zeroPages));
+    }
+
+    @Test
+    @DisplayName("Все нарушения пакета за один проход")
+    void validateAll_Test() {
+        //given
+        List<Book> books = List.of(
+                book("Mummy", "Aaron", 500),
+                book(" ", null, 500),
+                book("Mummy", "Aaron", -1));
+
+        //when
+        List<Violation> violations = BOOK_VALIDATOR.validateAll(books);
+
+        //then
+        assertThat(violations).containsExactly(
+                new Violation(1, "title"),
+                new Violation(1, "author"),
+                new Violation(2, "pageCount"));
+        assertThat(violations.toString()).isEqualTo("[[1].title, [1].author, [2].pageCount]");
+    }
+
+    private static Book book(String title, String author, long pageCount) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPageCount(pageCount);
+        return book;
+    }
+}
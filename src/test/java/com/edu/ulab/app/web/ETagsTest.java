@@ -0,0 +1,68 @@
+package com.edu.ulab.app.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование ETag ответа пользователя {@link ETags}.
+ */
+@DisplayName("Testing user ETags.")
+public class ETagsTest {
+
+    @Test
+    @DisplayName("If-None-Match совпадает с ETag той же версии")
+    void matches_Test() {
+        //given
+        String etag = ETags.of(7L, MediaType.APPLICATION_JSON);
+
+        //then
+        assertThat(etag).isEqualTo("\"7\"");
+        assertThat(ETags.matches("\"7\"", etag)).isTrue();
+        assertThat(ETags.matches("W/\"7\"", etag)).isTrue();
+        assertThat(ETags.matches("\"5\", \"7\"", etag)).isTrue();
+        assertThat(ETags.matches("*", etag)).isTrue();
+    }
+
+    @Test
+    @DisplayName("If-None-Match другой версии или пустой не совпадает")
+    void matches_FailTest() {
+        //given
+        String etag = ETags.of(7L, MediaType.APPLICATION_JSON);
+
+        //then
+        assertThat(ETags.matches(null, etag)).isFalse();
+        assertThat(ETags.matches("", etag)).isFalse();
+        assertThat(ETags.matches("\"6\"", etag)).isFalse();
+        assertThat(ETags.matches("7", etag)).isFalse();
+    }
+
+    @Test
+    @DisplayName("У CBOR и Smile свой ETag, JSON-версия с ним не совпадает")
+    void of_RepresentationTest() {
+        //given
+        String cbor = ETags.of(7L, MediaType.APPLICATION_CBOR);
+        String smile = ETags.of(7L, ETags.APPLICATION_SMILE);
+
+        //then
+        assertThat(cbor).isEqualTo("\"7-cbor\"");
+        assertThat(smile).isEqualTo("\"7-smile\"");
+        assertThat(ETags.matches("\"7\"", cbor)).isFalse();
+        assertThat(ETags.matches("\"7-cbor\"", smile)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Представление выбирается по Accept с учётом качества, по умолчанию JSON")
+    void representation_Test() {
+        //then
+        assertThat(ETags.representation(null)).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(ETags.representation("*/*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(ETags.representation("application/cbor")).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(ETags.representation("application/json;q=0.5, application/x-jackson-smile"))
+                .isEqualTo(ETags.APPLICATION_SMILE);
+        assertThat(ETags.representation("application/cbor;q=0, */*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(ETags.representation("not a media type")).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,112 @@
+package com.edu.ulab.app.web.filter;
+
+import com.edu.ulab.app.config.SqlStatementBudgetProperties;
+import com.edu.ulab.app.sql.SqlStatementStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование {@link SqlStatementBudgetFilter}.
+ */
+@DisplayName("Testing sql statement budget filter.")
+public class SqlStatementBudgetFilterTest {
+    private static final String ENDPOINT = "GET /api/v1/user/get/{userId}";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlStatementBudgetProperties properties = new SqlStatementBudgetProperties();
+    private SqlStatementBudgetFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties.setDefaultMaxStatements(3);
+        properties.setRepeatedStatementThreshold(3);
+        filter = new SqlStatementBudgetFilter(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Повторяющийся запрос с разными параметрами считается одной формой и превышает бюджет")
+    void doFilter_RepeatedStatementsTest() throws Exception {
+        //given
+        FilterChain chain = executing(
+                "select * from ulab_edu.book where person_id = 1",
+                "select * from ulab_edu.book where person_id = 2",
+                "select * from ulab_edu.book where person_id = 3",
+                "select * from ulab_edu.person where id in (4, 5)");
+
+        //when
+        filter.doFilter(request(), new MockHttpServletResponse(), chain);
+
+        //then
+        assertThat(violations("budget")).isEqualTo(1);
+        assertThat(violations("repeated")).isEqualTo(1);
+        assertThat(meterRegistry.get("sql.request.statements").summary().totalAmount()).isEqualTo(4);
+        assertThat(SqlStatementStats.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("Запросы в пределах бюджета и endpoint'ы с отрицательным бюджетом не считаются нарушением")
+    void doFilter_WithinBudgetTest() throws Exception {
+        //given
+        properties.setEndpoints(Map.of("POST /api/v1/user/import", -1));
+        MockHttpServletRequest importRequest = request();
+        importRequest.setMethod("POST");
+        importRequest.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/user/import");
+
+        //when
+        filter.doFilter(request(), new MockHttpServletResponse(),
+                executing("select * from ulab_edu.person where id = 1"));
+        filter.doFilter(importRequest, new MockHttpServletResponse(), executing(
+                "select 1", "select 2", "select 3", "select 4", "select 5"));
+
+        //then
+        assertThat(meterRegistry.find("sql.request.budget.violations").counters()).isEmpty();
+        assertThat(meterRegistry.get("sql.request.statements").summaries()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Форма запроса не зависит от литералов, длины IN-списка и переносов строк")
+    void shape_Test() {
+        //given
+        SqlStatementStats stats = new SqlStatementStats();
+
+        //when
+        stats.record("select * from ulab_edu.book\n where title = 'a' and id in (?, ?)");
+        stats.record("select * from ulab_edu.book where title = 'it''s' and id in (?, ?, ?)");
+
+        //then
+        assertThat(stats.topShapes(5))
+                .containsExactly(Map.entry("select * from ulab_edu.book where title = ? and id in (?)", 2L));
+    }
+
+    private long violations(String reason) {
+        return (long) meterRegistry.get("sql.request.budget.violations")
+                .tags("endpoint", ENDPOINT, "reason", reason)
+                .counter()
+                .count();
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/v1/user/get/1");
+        request.addHeader("rqid", "rq-1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/user/get/{userId}");
+        return request;
+    }
+
+    private static FilterChain executing(String... statements) {
+        return (request, response) -> {
+            for (String statement : statements)
+                SqlStatementStats.current().record(statement);
+        };
+    }
+}
@@ -0,0 +1,234 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.config.WriteBehindProperties;
+import com.edu.ulab.app.exception.ConcurrentUpdateException;
+import com.edu.ulab.app.exception.EmptyFieldException;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.WriteBehindTimeoutException;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.edu.ulab.app.writebehind.UserUpdateCoalescer.COALESCED;
+import static com.edu.ulab.app.writebehind.UserUpdateCoalescer.PENDING_USERS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестирование функционала {@link UserUpdateCoalescer}.
+ */
+@DisplayName("Testing write-behind update coalescing.")
+public class UserUpdateCoalescerTest {
+    private final UserDataFacade userDataFacade = mock(UserDataFacade.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserUpdateCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.close();
+    }
+
+    @Test
+    @DisplayName("Изменения одного пользователя за окно пишутся одним изменением, ответ получают все запросы")
+    void submit_CoalescesBurstTest() {
+        //given
+        coalescer = coalescer(true);
+        UserBookResponse response = UserBookResponse.builder().userId(1L).booksIdList(List.of(7L)).build();
+        when(userDataFacade.updateUsersWithBooks(anyMap())).thenReturn(Map.of(1L, response));
+
+        //when
+        List<CompletableFuture<UserBookResponse>> acknowledgements = List.of(
+                coalescer.submit(1L, request("Old", "reader", 20, "Book 1")),
+                coalescer.submit(1L, request("Middle", "writer", 21, "Book 2")),
+                coalescer.submit(1L, request("New", "editor", 22, "Book 3")));
+
+        //then
+        acknowledgements.forEach(acknowledgement -> assertThat(acknowledgement.join()).isEqualTo(response));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, UserBookRequest>> flushed = ArgumentCaptor.forClass(Map.class);
+        verify(userDataFacade, times(1)).updateUsersWithBooks(flushed.capture());
+        UserBookRequest merged = flushed.getValue().get(1L);
+        assertThat(merged.getUserRequest().getFullName()).isEqualTo("New");
+        assertThat(merged.getUserRequest().getTitle()).isEqualTo("editor");
+        assertThat(merged.getUserRequest().getAge()).isEqualTo(22);
+        assertThat(merged.getBookRequests()).extracting(BookRequest::getTitle).containsExactly("Book 3");
+        assertThat(meterRegistry.get(COALESCED).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(PENDING_USERS).gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Запрос с пустыми полями отклоняется сразу и не сливается с остальными запросами пользователя")
+    void submit_RejectsInvalidRequestBeforeMergeTest() {
+        //given
+        coalescer = coalescer(true);
+        UserBookResponse response = UserBookResponse.builder().userId(1L).booksIdList(List.of(7L)).build();
+        when(userDataFacade.updateUsersWithBooks(anyMap())).thenReturn(Map.of(1L, response));
+
+        //when
+        CompletableFuture<UserBookResponse> valid = coalescer.submit(1L, request("Name", "reader", 20, "Book"));
+
+        //then
+        assertThatThrownBy(() -> coalescer.submit(1L, request(null, "reader", 21, "Book")))
+                .isInstanceOf(EmptyFieldException.class);
+        assertThatThrownBy(() -> coalescer.submit(1L, request("Name", "reader", 21, null)))
+                .isInstanceOf(EmptyFieldException.class);
+        assertThat(valid.join()).isEqualTo(response);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, UserBookRequest>> flushed = ArgumentCaptor.forClass(Map.class);
+        verify(userDataFacade, times(1)).updateUsersWithBooks(flushed.capture());
+        assertThat(flushed.getValue().get(1L).getUserRequest().getAge()).isEqualTo(20);
+        assertThat(meterRegistry.get(COALESCED).counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Если слитое изменение не записалось, запросы применяются по одному и ошибку получает только свой запрос")
+    void submit_FlushesRequestsOneByOneAfterMergedFailureTest() {
+        //given
+        coalescer = coalescer(true);
+        UserBookResponse response = UserBookResponse.builder().userId(1L).booksIdList(List.of()).build();
+        when(userDataFacade.updateUsersWithBooks(anyMap())).thenAnswer(invocation -> {
+            Map<Long, UserBookRequest> requests = invocation.getArgument(0);
+            if ("taken".equals(requests.get(1L).getUserRequest().getTitle()))
+                throw new NotUniqueException("Title taken is already used");
+            return Map.of(1L, response);
+        });
+
+        //when
+        CompletableFuture<UserBookResponse> first = coalescer.submit(1L, request("First", "reader", 20, "Book"));
+        CompletableFuture<UserBookResponse> duplicate = coalescer.submit(1L, request("Second", "taken", 21, "Book"));
+
+        //then
+        assertThat(first.join()).isEqualTo(response);
+        assertThatThrownBy(duplicate::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NotUniqueException.class);
+        verify(userDataFacade, times(3)).updateUsersWithBooks(anyMap());
+    }
+
+    @Test
+    @DisplayName("Если слитое изменение упало не из-за данных, ошибку получают все запросы без повтора")
+    void submit_FailsAllRequestsAfterNonDataFailureTest() {
+        //given
+        coalescer = coalescer(true);
+        when(userDataFacade.updateUsersWithBooks(anyMap()))
+                .thenThrow(new ConcurrentUpdateException("User 1 was modified concurrently"));
+
+        //when
+        CompletableFuture<UserBookResponse> first = coalescer.submit(1L, request("First", "reader", 20, "Book"));
+        CompletableFuture<UserBookResponse> duplicate = coalescer.submit(1L, request("Second", "writer", 21, "Book"));
+
+        //then
+        assertThatThrownBy(first::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ConcurrentUpdateException.class);
+        assertThatThrownBy(duplicate::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ConcurrentUpdateException.class);
+        verify(userDataFacade, times(1)).updateUsersWithBooks(anyMap());
+    }
+
+    @Test
+    @DisplayName("Запрос, не дождавшийся коммита за ack-timeout, получает ошибку таймаута")
+    void update_AckTimeoutTest() {
+        //given
+        coalescer = coalescer(true, Duration.ofMillis(300));
+        UserBookResponse response = UserBookResponse.builder().userId(1L).booksIdList(List.of()).build();
+        when(userDataFacade.updateUsersWithBooks(anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return Map.of(1L, response);
+        });
+
+        //when
+        //then
+        assertThatThrownBy(() -> coalescer.update(1L, request("Name", "reader", 20, "Book")))
+                .isInstanceOf(WriteBehindTimeoutException.class);
+    }
+
+    @Test
+    @DisplayName("Если пачка не записалась, пользователи пишутся по одному и ошибку получает только свой запрос")
+    void submit_FlushesOneByOneAfterBatchFailureTest() {
+        //given
+        coalescer = coalescer(true);
+        UserBookResponse response = UserBookResponse.builder().userId(2L).booksIdList(List.of()).build();
+        when(userDataFacade.updateUsersWithBooks(anyMap())).thenAnswer(invocation -> {
+            Map<Long, UserBookRequest> requests = invocation.getArgument(0);
+            if (requests.containsKey(1L))
+                throw new NotFoundException("User with id 1 not found");
+            return Map.of(2L, response);
+        });
+
+        //when
+        CompletableFuture<UserBookResponse> missing = coalescer.submit(1L, request("Missing", "reader", 20, "Book"));
+        CompletableFuture<UserBookResponse> present = coalescer.submit(2L, request("Present", "reader", 30, "Book"));
+
+        //then
+        assertThat(present.join()).isEqualTo(response);
+        assertThatThrownBy(missing::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("При выключенной отложенной записи изменение сразу уходит в фасад")
+    void update_DisabledDelegatesToFacadeTest() {
+        //given
+        coalescer = coalescer(false);
+        UserBookRequest request = request("Name", "reader", 20, "Book");
+        UserBookResponse response = UserBookResponse.builder().userId(1L).booksIdList(List.of(3L)).build();
+        when(userDataFacade.updateUserWithBooks(request, 1L)).thenReturn(response);
+
+        //when
+        UserBookResponse updated = coalescer.update(1L, request);
+
+        //then
+        assertThat(updated).isEqualTo(response);
+        verify(userDataFacade, never()).updateUsersWithBooks(anyMap());
+    }
+
+    private UserUpdateCoalescer coalescer(boolean enabled) {
+        return coalescer(enabled, Duration.ofSeconds(5));
+    }
+
+    private UserUpdateCoalescer coalescer(boolean enabled, Duration ackTimeout) {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setEnabled(enabled);
+        properties.setWindow(Duration.ofMillis(200));
+        properties.setAckTimeout(ackTimeout);
+        return new UserUpdateCoalescer(userDataFacade, new UserMapperImpl(), new BookMapperImpl(), properties,
+                meterRegistry);
+    }
+
+    private static UserBookRequest request(String fullName, String title, int age, String bookTitle) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName(fullName);
+        userRequest.setTitle(title);
+        userRequest.setAge(age);
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle(bookTitle);
+        bookRequest.setAuthor("Author");
+        bookRequest.setPageCount(100);
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequest));
+        return request;
+    }
+}
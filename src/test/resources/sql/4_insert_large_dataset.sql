@@ -0,0 +1,10 @@
+insert into ulab_edu.person (ID, FULL_NAME, TITLE, AGE)
+select g, 'user ' || g, 'title ' || g, 18 + g % 60
+from generate_series(1, 10000) g;
+
+insert into ulab_edu.book (ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT)
+select 100000 + g, 1 + g % 10000, 'book ' || g, 'author ' || g % 100, 100 + g % 900
+from generate_series(1, 100000) g;
+
+analyze ulab_edu.person;
+analyze ulab_edu.book;